@@ -0,0 +1,67 @@
+package com.ecommerce.backend.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+/**
+ * Collapses duplicate (user_id, product_id) lines in user_cart and
+ * user_wishlist so Hibernate's schema update can add the unique keys the
+ * single-statement upserts rely on.
+ *
+ * Runs before the EntityManagerFactory (and so before ddl-auto). Duplicate
+ * cart lines are folded into one surviving line with their quantities summed;
+ * duplicate wishlist lines are simply dropped. The survivor is the line with
+ * the smallest id, which for random UUIDs is an arbitrary pick, not the oldest.
+ * All statements run in one transaction, so a failure leaves no line with a
+ * summed quantity next to the duplicates it absorbed. Once the unique keys
+ * exist the statements find nothing to do.
+ */
+@Configuration
+public class CartLineDedupConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartLineDedupConfig.class);
+
+    private static final String DUPLICATES =
+            "SELECT user_id, product_id, MIN(id) AS keep_id, SUM(%s) AS total FROM %s " +
+                    "GROUP BY user_id, product_id HAVING COUNT(*) > 1";
+
+    @Bean
+    public static EntityManagerFactoryDependsOnPostProcessor cartLineDedupBeforeJpa() {
+        return new EntityManagerFactoryDependsOnPostProcessor("cartLineDedup");
+    }
+
+    @Bean
+    public InitializingBean cartLineDedup(DataSource dataSource) {
+        return () -> {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            // ✅ JPA is not up yet, so the transaction runs on the plain DataSource
+            TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+            try {
+                transactionTemplate.executeWithoutResult(tx -> {
+                    jdbcTemplate.update("UPDATE user_cart c JOIN (" + DUPLICATES.formatted("quantity", "user_cart") + ") d " +
+                            "ON c.id = d.keep_id SET c.quantity = d.total");
+                    int cart = jdbcTemplate.update("DELETE c FROM user_cart c JOIN (" + DUPLICATES.formatted("1", "user_cart") + ") d " +
+                            "ON c.user_id = d.user_id AND c.product_id = d.product_id AND c.id <> d.keep_id");
+                    int wishlist = jdbcTemplate.update("DELETE w FROM user_wishlist w JOIN (" + DUPLICATES.formatted("1", "user_wishlist") + ") d " +
+                            "ON w.user_id = d.user_id AND w.product_id = d.product_id AND w.id <> d.keep_id");
+                    if (cart + wishlist > 0) {
+                        logger.info("✅ Folded {} duplicate cart lines into their surviving line and removed {} duplicate wishlist lines", cart, wishlist);
+                    }
+                });
+            } catch (DataAccessException e) {
+                // ✅ Fresh schema: the tables are created later by Hibernate
+                logger.debug("Cart line dedup skipped: {}", e.getMessage());
+            }
+        };
+    }
+}
@@ -0,0 +1,66 @@
+package com.ecommerce.backend.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Seeds the id_generators rows behind the pooled table ids of Order and Item.
+ *
+ * Both tables used IDENTITY before, so each generator must start above the
+ * highest existing id. This runs before the JPA EntityManagerFactory is built,
+ * so no insert can draw a block from an unaligned generator. Rows are only
+ * ever moved forward.
+ */
+@Configuration
+public class IdGeneratorConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdGeneratorConfig.class);
+
+    // ✅ Must match allocationSize of the @TableGenerator on Order and Item
+    private static final int ALLOCATION_SIZE = 50;
+
+    // ✅ generator row -> table whose ids it hands out
+    private static final Map<String, String> GENERATORS = Map.of("orders", "orders", "items", "items");
+
+    @Bean
+    public static EntityManagerFactoryDependsOnPostProcessor idGeneratorsBeforeJpa() {
+        return new EntityManagerFactoryDependsOnPostProcessor("idGeneratorAlignment");
+    }
+
+    @Bean
+    public InitializingBean idGeneratorAlignment(DataSource dataSource) {
+        return () -> {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS id_generators " +
+                    "(sequence_name VARCHAR(255) NOT NULL, next_val BIGINT, PRIMARY KEY (sequence_name))");
+
+            GENERATORS.forEach((generator, table) -> {
+                long maxId;
+                try {
+                    Long max = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + table, Long.class);
+                    maxId = max != null ? max : 0;
+                } catch (DataAccessException e) {
+                    maxId = 0; // ✅ Fresh schema: the table is created later by Hibernate
+                }
+                if (maxId == 0) return;
+
+                // ✅ A pooled block ends at next_val, so one allocation of headroom keeps every new id above maxId
+                long floor = maxId + ALLOCATION_SIZE + 1;
+                jdbcTemplate.update(
+                        "INSERT INTO id_generators (sequence_name, next_val) VALUES (?, ?) " +
+                                "ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val))",
+                        generator, floor);
+                logger.info("Id generator '{}' aligned above max id {}", generator, maxId);
+            });
+        };
+    }
+}
@@ -0,0 +1,99 @@
+package com.ecommerce.backend.config;
+
+import com.ecommerce.backend.service.OrderTimeline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * One-time conversion of the string date fields on existing orders into the
+ * typed ordered_at / ordered_on / delivery_on columns.
+ *
+ * Unconverted rows are streamed (MySQL row-by-row result set, so memory stays
+ * flat however many orders exist) and written back in JDBC batches over a
+ * second connection. New orders are written with the typed columns, so once a
+ * pass completes it is recorded in schema_migrations and later startups skip
+ * the (unindexed) scan of the orders table entirely.
+ */
+@Configuration
+public class OrderTemporalMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderTemporalMigration.class);
+    private static final int BATCH_SIZE = 500;
+    private static final String MIGRATION = "orders_temporal_columns";
+
+    private record Converted(long id, Instant orderedAt, LocalDate orderedOn, LocalDate deliveryOn) {
+    }
+
+    @Bean
+    public CommandLineRunner backfillOrderTemporalColumns(DataSource dataSource, JdbcTemplate jdbcTemplate) {
+        return args -> {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS schema_migrations " +
+                    "(name VARCHAR(255) NOT NULL, completed_at TIMESTAMP NOT NULL, PRIMARY KEY (name))");
+            Integer done = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM schema_migrations WHERE name = ?", Integer.class, MIGRATION);
+            if (done != null && done > 0) return;
+
+            JdbcTemplate streaming = new JdbcTemplate(dataSource);
+            streaming.setFetchSize(Integer.MIN_VALUE); // ✅ Connector/J streams rows instead of buffering the result
+
+            List<Converted> batch = new ArrayList<>(BATCH_SIZE);
+            int[] converted = {0};
+
+            streaming.query(
+                    "SELECT id, ordered_time, ordered_date, delivery_date FROM orders " +
+                            "WHERE ordered_at IS NULL AND ordered_on IS NULL AND delivery_on IS NULL " +
+                            "AND (ordered_time IS NOT NULL OR ordered_date IS NOT NULL OR delivery_date IS NOT NULL)",
+                    rs -> {
+                        Converted row = new Converted(rs.getLong("id"),
+                                OrderTimeline.parsePlacedOrNull(rs.getString("ordered_time")),
+                                OrderTimeline.parseDateOrNull(rs.getString("ordered_date")),
+                                OrderTimeline.parseDateOrNull(rs.getString("delivery_date")));
+                        if (row.orderedAt() == null && row.orderedOn() == null && row.deliveryOn() == null) return;
+
+                        batch.add(row);
+                        if (batch.size() == BATCH_SIZE) {
+                            converted[0] += write(jdbcTemplate, batch);
+                        }
+                    });
+            converted[0] += write(jdbcTemplate, batch);
+
+            if (converted[0] > 0) {
+                logger.info("✅ Converted date fields to typed columns for {} orders", converted[0]);
+            }
+            // ✅ Only a pass that ran to the end is recorded; a crash midway rescans on the next start
+            jdbcTemplate.update("INSERT IGNORE INTO schema_migrations (name, completed_at) VALUES (?, NOW())", MIGRATION);
+        };
+    }
+
+    private static int write(JdbcTemplate jdbcTemplate, List<Converted> batch) {
+        if (batch.isEmpty()) return 0;
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        jdbcTemplate.batchUpdate(
+                "UPDATE orders SET ordered_at = ?, ordered_on = ?, delivery_on = ? WHERE id = ?",
+                batch, batch.size(), (ps, row) -> {
+                    // ✅ UTC wall time, matching how Hibernate writes Instant columns
+                    if (row.orderedAt() != null) ps.setTimestamp(1, Timestamp.from(row.orderedAt()), utc);
+                    else ps.setNull(1, Types.TIMESTAMP);
+                    ps.setObject(2, row.orderedOn(), Types.DATE);
+                    ps.setObject(3, row.deliveryOn(), Types.DATE);
+                    ps.setLong(4, row.id());
+                });
+        int written = batch.size();
+        batch.clear();
+        return written;
+    }
+}
@@ -0,0 +1,244 @@
+package com.ecommerce.backend.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Serves /uploads/** straight from disk, ahead of the security and JWT filters.
+ *
+ * Upload filenames never get reused, so responses are marked immutable. The
+ * filter also answers If-None-Match with 304, serves single byte ranges,
+ * prefers a precompressed .br/.gz sibling when the client accepts it.
+ *
+ * Bodies of at least {@link #SENDFILE_MIN_BYTES} are handed to the connector's
+ * sendfile when Tomcat offers it, so the kernel copies the file to the socket.
+ * Smaller bodies, and containers without sendfile, are copied through the
+ * servlet output stream.
+ */
+public class StaticMediaFilter extends OncePerRequestFilter {
+
+    public static final String PREFIX = "/uploads/";
+
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    // ✅ Same threshold as Tomcat's DefaultServlet; below it a buffered copy is cheaper than setting up sendfile
+    static final long SENDFILE_MIN_BYTES = 48 * 1024;
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final Path root;
+
+    public StaticMediaFilter(Path root) {
+        this.root = root.toAbsolutePath().normalize();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+
+        String method = request.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        Path file = resolve(request);
+        if (file == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        String rangeHeader = request.getHeader("Range");
+        String encoding = null;
+        Path body = file;
+
+        // ✅ Precompressed siblings only for full responses (ranges address the raw bytes)
+        if (rangeHeader == null) {
+            String accept = request.getHeader("Accept-Encoding");
+            if (accepts(accept, "br") && Files.isRegularFile(sibling(file, ".br"))) {
+                encoding = "br";
+                body = sibling(file, ".br");
+            } else if (accepts(accept, "gzip") && Files.isRegularFile(sibling(file, ".gz"))) {
+                encoding = "gzip";
+                body = sibling(file, ".gz");
+            }
+        }
+
+        long length;
+        long lastModified;
+        try {
+            length = Files.size(body);
+            lastModified = Files.getLastModifiedTime(body).toMillis();
+        } catch (NoSuchFileException e) {
+            // ✅ Removed by the upload GC between resolve and stat
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        String etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified)
+                + (encoding != null ? "-" + encoding : "") + "\"";
+
+        response.setHeader("ETag", etag);
+        response.setHeader("Cache-Control", CACHE_CONTROL);
+        response.setHeader("Vary", "Accept-Encoding");
+        response.setDateHeader("Last-Modified", lastModified);
+
+        if (matches(request.getHeader("If-None-Match"), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        String contentType = getServletContext().getMimeType(file.getFileName().toString());
+        response.setContentType(contentType != null ? contentType : "application/octet-stream");
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        response.setHeader("Accept-Ranges", "bytes");
+        if (encoding != null) {
+            response.setHeader("Content-Encoding", encoding);
+        }
+
+        long start = 0;
+        long end = length - 1;
+
+        String ifRange = request.getHeader("If-Range");
+        if (rangeHeader != null && (ifRange == null || ifRange.equals(etag))) {
+            long[] range = parseRange(rangeHeader, length);
+            if (range == null) {
+                response.setHeader("Content-Range", "bytes */" + length);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (range.length == 2) {
+                start = range[0];
+                end = range[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(method) || count <= 0) {
+            return;
+        }
+
+        if (count >= SENDFILE_MIN_BYTES && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // ✅ Tomcat writes the range with sendfile after the filter returns (end is exclusive)
+            request.setAttribute(SENDFILE_FILENAME, body.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(body, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            response.reset();
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        try (channel) {
+            OutputStream out = response.getOutputStream();
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(count, 64 * 1024));
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), remaining));
+                int read = channel.read(buffer, position);
+                if (read <= 0) break;
+                out.write(buffer.array(), 0, read);
+                position += read;
+                remaining -= read;
+            }
+        }
+    }
+
+    // ✅ Decoded, normalized and confined to the upload root
+    private Path resolve(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (!path.startsWith(PREFIX)) return null;
+
+        String relative = UriUtils.decode(path.substring(PREFIX.length()), StandardCharsets.UTF_8);
+        if (relative.isEmpty() || relative.endsWith(".tmp")) return null;
+
+        Path file = root.resolve(relative).normalize();
+        if (!file.startsWith(root) || !Files.isRegularFile(file) || !Files.isReadable(file)) return null;
+        return file;
+    }
+
+    /**
+     * Single "bytes=" range. Returns {start, end} for a satisfiable range, an
+     * empty array when the header should be ignored (multi-range or malformed)
+     * and null when the range is unsatisfiable.
+     */
+    static long[] parseRange(String header, long length) {
+        if (!header.startsWith("bytes=") || header.contains(",")) return new long[0];
+        String spec = header.substring(6).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) return new long[0];
+
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                if (last.isEmpty()) return new long[0];
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) return null;
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+            }
+            if (start >= length || start > end) return null;
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) tag = tag.substring(2);
+            if (tag.equals("*") || tag.equals(etag)) return true;
+        }
+        return false;
+    }
+
+    private static boolean accepts(String acceptEncoding, String coding) {
+        if (acceptEncoding == null) return false;
+        for (String part : acceptEncoding.split(",")) {
+            String[] pieces = part.trim().split(";");
+            if (pieces[0].trim().equalsIgnoreCase(coding)) {
+                return pieces.length < 2 || !pieces[1].trim().replace(" ", "").equals("q=0");
+            }
+        }
+        return false;
+    }
+
+    private static Path sibling(Path file, String suffix) {
+        return file.resolveSibling(file.getFileName() + suffix);
+    }
+}
@@ -1,6 +1,10 @@
 package com.ecommerce.backend.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
 import org.springframework.web.servlet.config.annotation.*;
 
 import java.nio.file.Paths;
@@ -8,10 +12,16 @@ import java.nio.file.Paths;
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
-    @Override
-    public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        String uploadPath = Paths.get("uploads").toAbsolutePath().toUri().toString();
-        registry.addResourceHandler("/uploads/**")
-                .addResourceLocations(uploadPath);
+    @Value("${file.upload-dir}")
+    private String uploadDir;
+
+    // ✅ /uploads is served by StaticMediaFilter ahead of Spring Security and JwtFilter
+    @Bean
+    public FilterRegistrationBean<StaticMediaFilter> staticMediaFilter() {
+        FilterRegistrationBean<StaticMediaFilter> registration =
+                new FilterRegistrationBean<>(new StaticMediaFilter(Paths.get(uploadDir)));
+        registration.addUrlPatterns(StaticMediaFilter.PREFIX + "*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
     }
 }
@@ -0,0 +1,83 @@
+package com.ecommerce.backend.controller;
+
+import com.ecommerce.backend.dto.SalesRollupDTO;
+import com.ecommerce.backend.service.SalesRollupService;
+import io.jsonwebtoken.Claims;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin")
+public class AnalyticsController {
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    // ✅ Dashboard aggregates served from sales_rollups (groupBy=day|month|category|paymentMethod)
+    @GetMapping("/analytics")
+    public ResponseEntity<?> getAnalytics(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                          @RequestParam(defaultValue = "day") String groupBy,
+                                          @RequestParam(required = false) String category,
+                                          HttpServletRequest request) {
+        if (!isAdmin(request)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        LocalDate end = to != null ? to : LocalDate.now(ZoneOffset.UTC);
+        LocalDate start = from != null ? from : end.minusDays(29);
+        if (start.isAfter(end)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "from must not be after to"));
+        }
+
+        List<SalesRollupDTO> rows;
+        List<SalesRollupDTO> totals;
+        try {
+            rows = salesRollupService.query(start, end, groupBy, category);
+            // ✅ Totals always come from the order-level rows so multi-category orders count once
+            totals = salesRollupService.query(start, end, "paymentMethod", category);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        Map<String, Object> total = new LinkedHashMap<>();
+        total.put("orders", totals.stream().mapToLong(SalesRollupDTO::getOrders).sum());
+        total.put("units", totals.stream().mapToLong(SalesRollupDTO::getUnits).sum());
+        total.put("revenue", totals.stream().mapToDouble(SalesRollupDTO::getRevenue).sum());
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("from", start.toString());
+        body.put("to", end.toString());
+        body.put("groupBy", groupBy);
+        body.put("rows", rows);
+        body.put("totals", total);
+        return ResponseEntity.ok(body);
+    }
+
+    // ✅ Recompute rollups from order history (both bounds optional; omit both for a full rebuild)
+    @PostMapping("/analytics/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuild(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                       @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                       HttpServletRequest request) {
+        if (!isAdmin(request)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        int rows = salesRollupService.rebuild(from, to);
+        return ResponseEntity.ok(Map.of("rows", rows));
+    }
+
+    private static boolean isAdmin(HttpServletRequest request) {
+        Claims claims = (Claims) request.getAttribute("claims");
+        return claims != null && Boolean.TRUE.equals(claims.get("isAdmin", Boolean.class));
+    }
+}
@@ -1,9 +1,10 @@
 package com.ecommerce.backend.controller;
 
+import com.ecommerce.backend.dto.CartOperationDTO;
 import com.ecommerce.backend.dto.CartProductDTO;
-import com.ecommerce.backend.entity.CartItem;
-import com.ecommerce.backend.entity.Product;
+import com.ecommerce.backend.dto.ItemDTO;
 import com.ecommerce.backend.service.CartService;
+import com.ecommerce.backend.service.PricingEngine;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -17,36 +18,24 @@ public class CartController {
     @Autowired
     private CartService cartService;
 
+    @Autowired
+    private PricingEngine pricingEngine;
+
     // ✅ Get all cart items for a user (returns DTOs)
     @GetMapping("/users/{userId}/cart")
     public ResponseEntity<List<CartProductDTO>> getCart(@PathVariable UUID userId) {
-        List<CartItem> items = cartService.getCartByUser(userId);
-
-        List<CartProductDTO> response = items.stream()
-                .map(item -> {
-                    Product p = item.getProduct();
-                    return new CartProductDTO(
-                            p.getId(),
-                            p.getTitle(),
-                            p.getThumbnail(),
-                            p.getDescription(),
-                            p.getPrice(),
-                            item.getQuantity(),
-                            p.getCategory(),
-                            p.getBrand(),
-                            null // ✅ No unit field in Product, so we pass null
-                    );
-                })
-                .toList();
-
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok(cartService.getCartView(userId));
     }
 
     // ✅ Add product to cart
     @PostMapping("/users/{userId}/cart/{productId}")
-    public ResponseEntity<CartItem> addToCart(@PathVariable UUID userId, @PathVariable String productId) {
-        CartItem added = cartService.addToCart(userId, productId);
-        return ResponseEntity.ok(added);
+    public ResponseEntity<Map<String, String>> addToCart(@PathVariable UUID userId, @PathVariable String productId) {
+        try {
+            boolean created = cartService.addToCart(userId, productId);
+            return ResponseEntity.ok(Map.of("status", created ? "added" : "incremented"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(404).body(Map.of("error", e.getMessage()));
+        }
     }
 
     // ✅ Update quantity of a cart item
@@ -92,4 +81,35 @@ public class CartController {
         cartService.removeMultipleFromCart(userId, productIds);
         return ResponseEntity.ok(Map.of("status", "selected items removed"));
     }
+
+    // ✅ Several cart edits in one request and one transaction; returns the cart as it is afterwards
+    @PostMapping("/users/{userId}/cart/batch")
+    public ResponseEntity<?> applyOperations(@PathVariable UUID userId, @RequestBody List<CartOperationDTO> operations) {
+        if (operations == null || operations.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "No cart operations provided"));
+        }
+
+        try {
+            return ResponseEntity.ok(cartService.applyOperations(userId, operations));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // ✅ Server-side price of a cart: per-line discounts, shipping, tax and total, priced from memory
+    @PostMapping("/cart/quote")
+    public ResponseEntity<?> quote(@RequestBody List<ItemDTO> items) {
+        if (items == null || items.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "No items provided"));
+        }
+
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        for (ItemDTO item : items) {
+            if (item.getProductId() == null || item.getQty() < 1) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Every item needs a product id and a positive quantity"));
+            }
+            quantities.merge(item.getProductId(), item.getQty(), Integer::sum);
+        }
+        return ResponseEntity.ok(pricingEngine.quote(quantities));
+    }
 }
@@ -0,0 +1,77 @@
+package com.ecommerce.backend.controller;
+
+import com.ecommerce.backend.dto.OrderDTO;
+import com.ecommerce.backend.entity.Order;
+import com.ecommerce.backend.service.CheckoutService;
+import com.ecommerce.backend.service.IdempotencyService;
+import io.jsonwebtoken.Claims;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/checkout")
+public class CheckoutController {
+
+    @Autowired
+    private CheckoutService checkoutService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    // ✅ Whole checkout in one call: validates prices, takes stock, places the order, clears the purchased cart lines
+    @PostMapping
+    public ResponseEntity<?> checkout(@RequestBody OrderDTO dto,
+                                      @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                      HttpServletRequest request) {
+        // ✅ The buyer is the token's subject; a body naming someone else is rejected, not trusted
+        UUID caller = userId(request);
+        if (caller == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        if (dto.getUserId() != null && !dto.getUserId().equals(caller)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        dto.setUserId(caller);
+
+        try {
+            if (idempotencyKey == null) {
+                Order order = checkoutService.checkout(dto);
+                return ResponseEntity.ok(order.getId());
+            }
+
+            IdempotencyService.Result result = idempotencyService.placeOnce(idempotencyKey, dto.getUserId(),
+                    () -> checkoutService.checkout(dto));
+            if (result == null) {
+                return ResponseEntity.badRequest().build();
+            }
+            return ResponseEntity.ok()
+                    .header("Idempotent-Replayed", Boolean.toString(result.replayed()))
+                    .body(result.orderId());
+        } catch (CheckoutService.CheckoutRejectedException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                    "error", e.getMessage(),
+                    "productIds", e.getProductIds(),
+                    "currentPrices", e.getCurrentPrices()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private static UUID userId(HttpServletRequest request) {
+        Claims claims = (Claims) request.getAttribute("claims");
+        if (claims == null || claims.getSubject() == null) return null;
+        try {
+            return UUID.fromString(claims.getSubject());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
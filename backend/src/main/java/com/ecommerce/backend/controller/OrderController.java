@@ -2,14 +2,31 @@ package com.ecommerce.backend.controller;
 
 import com.ecommerce.backend.dto.OrderDTO;
 import com.ecommerce.backend.dto.ItemDTO;
+import com.ecommerce.backend.dto.OrderPageDTO;
 import com.ecommerce.backend.entity.Order;
+import com.ecommerce.backend.service.DeliveryDispatcher;
+import com.ecommerce.backend.service.IdempotencyService;
+import com.ecommerce.backend.service.OrderEventHub;
+import com.ecommerce.backend.service.OrderExportService;
 import com.ecommerce.backend.service.OrderService;
 import com.ecommerce.backend.repository.OrderRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.bind.annotation.*;
 
+import io.jsonwebtoken.Claims;
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -23,14 +40,51 @@ public class OrderController {
     @Autowired
     private OrderRepository orderRepository;
 
-    // ✅ Place a new order
+    @Autowired
+    private DeliveryDispatcher deliveryDispatcher;
+
+    @Autowired
+    private OrderExportService orderExportService;
+
+    @Autowired
+    private OrderEventHub orderEventHub;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    // ✅ Place a new order; retries carrying the same Idempotency-Key get the original order id back
     @PostMapping
-    public ResponseEntity<Long> placeOrder(@RequestBody OrderDTO dto) {
-        Order savedOrder = orderService.saveOrder(dto);
-        if (savedOrder == null) {
+    public ResponseEntity<?> placeOrder(@RequestBody OrderDTO dto,
+                                        @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                        HttpServletRequest request) {
+        // ✅ Reservations are claimed as dto.getUserId(), so that has to be the caller (admins may order for others)
+        Claims claims = (Claims) request.getAttribute("claims");
+        if (claims == null || dto.getUserId() == null
+                || (!isAdmin(request) && !dto.getUserId().toString().equals(claims.getSubject()))) {
+            return ResponseEntity.status(403).build();
+        }
+        if (idempotencyKey == null) {
+            Order savedOrder = orderService.saveOrder(dto);
+            if (savedOrder == null) {
+                return ResponseEntity.badRequest().build();
+            }
+            return ResponseEntity.ok(savedOrder.getId());
+        }
+
+        IdempotencyService.Result result;
+        try {
+            result = idempotencyService.placeOnce(idempotencyKey, dto.getUserId(), () -> orderService.saveOrder(dto));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(Map.of("error", e.getMessage()));
+        }
+        if (result == null) {
             return ResponseEntity.badRequest().build();
         }
-        return ResponseEntity.ok(savedOrder.getId());
+        return ResponseEntity.ok()
+                .header("Idempotent-Replayed", Boolean.toString(result.replayed()))
+                .body(result.orderId());
     }
 
     // ✅ Fetch order by ID (used in confirmation, details, tracking)
@@ -43,6 +97,33 @@ public class OrderController {
         return ResponseEntity.ok(dto);
     }
 
+    // ✅ Live status stream for one order (TrackPackage.jsx, OrderDetails.jsx); first event is the current status.
+    //    Only the order's owner or an admin may subscribe
+    @GetMapping(value = "/{orderId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamOrderEvents(@PathVariable Long orderId, HttpServletRequest request) {
+        List<Object[]> rows = orderRepository.findStatusAndOwnerById(orderId);
+        if (rows.isEmpty()) return ResponseEntity.notFound().build();
+
+        Claims claims = (Claims) request.getAttribute("claims");
+        Object owner = rows.get(0)[1];
+        if (claims == null || (!isAdmin(request) && (owner == null || !owner.toString().equals(claims.getSubject())))) {
+            return ResponseEntity.status(403).build();
+        }
+
+        OrderEventHub.StatusEvent current = new OrderEventHub.StatusEvent(orderId, (String) rows.get(0)[0], Instant.now().toString());
+        return ResponseEntity.ok(orderEventHub.subscribeOrder(orderId, current));
+    }
+
+    // ✅ Live status stream for every order of a user; only the user themselves or an admin may subscribe
+    @GetMapping(value = "/user/{userId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamUserEvents(@PathVariable UUID userId, HttpServletRequest request) {
+        Claims claims = (Claims) request.getAttribute("claims");
+        if (claims == null || (!isAdmin(request) && !userId.toString().equals(claims.getSubject()))) {
+            return ResponseEntity.status(403).build();
+        }
+        return ResponseEntity.ok(orderEventHub.subscribeUser(userId));
+    }
+
     // ✅ Fetch all orders for a user (used in Orders.jsx)
     @GetMapping("/user/{userId}")
     public ResponseEntity<List<OrderDTO>> getOrdersByUser(@PathVariable UUID userId) {
@@ -63,6 +144,76 @@ public class OrderController {
         return ResponseEntity.ok(dtos);
     }
 
+    // ✅ Paged admin listing (keyset on id, newest first); view=summary skips items
+    @GetMapping("/admin")
+    public ResponseEntity<?> getOrdersPage(@RequestParam(required = false) String status,
+                                           @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                           @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                           @RequestParam(required = false) UUID userId,
+                                           @RequestParam(required = false) String cursor,
+                                           @RequestParam(defaultValue = "50") int limit,
+                                           @RequestParam(defaultValue = "full") String view,
+                                           HttpServletRequest request) {
+        if (!isAdmin(request)) {
+            return ResponseEntity.status(403).build();
+        }
+
+        try {
+            OrderPageDTO<?> page = "summary".equalsIgnoreCase(view)
+                    ? orderService.listOrderSummaries(status, from, to, userId, cursor, limit)
+                    : orderService.listOrders(status, from, to, userId, cursor, limit);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("status", e.getMessage()));
+        }
+    }
+
+    // ✅ Streaming export (format=ndjson|csv, gzip=true for a .gz download); memory stays flat
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders(@RequestParam(defaultValue = "ndjson") String format,
+                                                              @RequestParam(required = false) String status,
+                                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                              @RequestParam(defaultValue = "false") boolean gzip,
+                                                              HttpServletRequest request) {
+        if (!isAdmin(request)) {
+            return ResponseEntity.status(403).build();
+        }
+
+        OrderExportService.Format exportFormat;
+        try {
+            exportFormat = OrderExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        String filename = "orders." + (exportFormat == OrderExportService.Format.CSV ? "csv" : "ndjson") + (gzip ? ".gz" : "");
+        MediaType contentType = gzip ? MediaType.parseMediaType("application/gzip")
+                : exportFormat == OrderExportService.Format.CSV ? MediaType.parseMediaType("text/csv;charset=UTF-8")
+                : MediaType.parseMediaType("application/x-ndjson");
+
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, 64 * 1024);
+                orderExportService.export(exportFormat, status, from, to, compressed);
+                compressed.finish();
+            } else {
+                orderExportService.export(exportFormat, status, from, to, out);
+            }
+        };
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .contentType(contentType)
+                .body(body);
+    }
+
+    // ✅ Active orders per delivery agent (dispatcher load metric)
+    @GetMapping("/agents/load")
+    public ResponseEntity<List<Map<String, Object>>> getAgentLoads() {
+        return ResponseEntity.ok(deliveryDispatcher.loads());
+    }
+
     // ✅ Cancel an order
     @PatchMapping("/{orderId}/cancel")
     public ResponseEntity<OrderDTO> cancelOrder(@PathVariable Long orderId) {
@@ -80,4 +231,9 @@ public class OrderController {
 
         return ResponseEntity.ok(items);
     }
+
+    private static boolean isAdmin(HttpServletRequest request) {
+        Claims claims = (Claims) request.getAttribute("claims");
+        return claims != null && Boolean.TRUE.equals(claims.get("isAdmin", Boolean.class));
+    }
 }
@@ -1,24 +1,34 @@
 package com.ecommerce.backend.controller;
 
 import com.ecommerce.backend.dto.ProductDTO;
+import com.ecommerce.backend.dto.ProductFacetsDTO;
+import com.ecommerce.backend.dto.ProductPageDTO;
 import com.ecommerce.backend.entity.Product;
+import com.ecommerce.backend.service.CatalogResponseCache;
 import com.ecommerce.backend.service.FileService;
+import com.ecommerce.backend.service.ImageVariantService;
 import com.ecommerce.backend.service.ProductService;
+import com.ecommerce.backend.service.StockReservationService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.jsonwebtoken.Claims;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/products")
@@ -30,24 +40,36 @@ public class ProductController {
     @Autowired
     private FileService fileService;
 
+    @Autowired
+    private CatalogResponseCache responseCache;
+
+    @Autowired
+    private StockReservationService reservationService;
+
+    @Autowired
+    private ImageVariantService imageVariantService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @GetMapping
-    public ResponseEntity<List<ProductDTO>> getProducts(
+    public ResponseEntity<byte[]> getProducts(
             @RequestParam(required = false) String category,
-            HttpServletRequest request) {
+            HttpServletRequest request,
+            WebRequest webRequest) {
         Claims claims = (Claims) request.getAttribute("claims");
-        List<ProductDTO> products = productService.getByCategory(category);
-        return ResponseEntity.ok(products);
+        String key = cacheKey("products", category == null || category.equalsIgnoreCase("All") ? null : category);
+        return cachedListing(webRequest, key, () -> new ProductPageDTO(productService.getByCategory(category), null));
     }
 
     @GetMapping("/deals")
-    public ResponseEntity<List<ProductDTO>> getDealProducts(HttpServletRequest request) {
+    public ResponseEntity<byte[]> getDealProducts(HttpServletRequest request, WebRequest webRequest) {
         Claims claims = (Claims) request.getAttribute("claims");
-        List<ProductDTO> deals = productService.getDeals();
-        return ResponseEntity.ok(deals);
+        return cachedListing(webRequest, "deals", () -> new ProductPageDTO(productService.getDeals(), null));
     }
 
     @GetMapping("/filter")
-    public ResponseEntity<List<ProductDTO>> filterProducts(
+    public ResponseEntity<byte[]> filterProducts(
             @RequestParam(required = false) String search,
             @RequestParam(required = false) List<String> brands,
             @RequestParam(required = false) List<String> categories,
@@ -56,12 +78,79 @@ public class ProductController {
             @RequestParam(required = false) Double ratingMin,
             @RequestParam(required = false) String sort,
             @RequestParam(defaultValue = "1") int page,
-            @RequestParam(defaultValue = "9") int limit
+            @RequestParam(defaultValue = "9") int limit,
+            @RequestParam(required = false) String cursor,
+            WebRequest webRequest
     ) {
-        List<ProductDTO> filtered = productService.filterProducts(
-                search, brands, categories, priceMin, priceMax, ratingMin, sort, page, limit
-        );
-        return ResponseEntity.ok(filtered);
+        String key = cacheKey("filter", search != null ? search.toLowerCase() : null, sorted(brands), sorted(categories),
+                priceMin, priceMax, ratingMin, sort, cursor != null ? "cursor=" + cursor : page, limit);
+
+        // ✅ Cursor mode: same body shape, next cursor travels in a response header
+        try {
+            return cachedListing(webRequest, key, () -> cursor != null
+                    ? productService.filterProductsAfter(search, brands, categories, priceMin, priceMax, ratingMin, sort, cursor, limit)
+                    : new ProductPageDTO(productService.filterProducts(
+                            search, brands, categories, priceMin, priceMax, ratingMin, sort, page, limit), null));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // ✅ Conditional GET + serialized-body cache shared by the listing endpoints
+    private ResponseEntity<byte[]> cachedListing(WebRequest webRequest, String key, Supplier<ProductPageDTO> loader) {
+        long version = responseCache.version();
+        String etag = responseCache.etag(version);
+        long lastModified = responseCache.lastModified().toEpochMilli();
+
+        if (webRequest.checkNotModified(etag, lastModified)) {
+            return null;
+        }
+
+        CatalogResponseCache.Entry entry = responseCache.get(key, version, () -> {
+            ProductPageDTO page = loader.get();
+            try {
+                return new CatalogResponseCache.Entry(version, objectMapper.writeValueAsBytes(page.getItems()), page.getNextCursor());
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Failed to serialize product listing", e);
+            }
+        });
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(etag)
+                .lastModified(lastModified)
+                .cacheControl(CacheControl.noCache());
+        if (entry.nextCursor() != null) {
+            response.header("X-Next-Cursor", entry.nextCursor());
+        }
+        return response.body(entry.body());
+    }
+
+    private static String cacheKey(String endpoint, Object... params) {
+        StringBuilder key = new StringBuilder(endpoint);
+        for (Object param : params) {
+            key.append('|').append(param);
+        }
+        return key.toString();
+    }
+
+    private static List<String> sorted(List<String> values) {
+        if (values == null || values.isEmpty()) return null;
+        return values.stream().sorted().toList();
+    }
+
+    // ✅ Facet counts for the product grid (same filter params as /filter)
+    @GetMapping("/facets")
+    public ResponseEntity<ProductFacetsDTO> getFacets(
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) List<String> brands,
+            @RequestParam(required = false) List<String> categories,
+            @RequestParam(required = false) Double priceMin,
+            @RequestParam(required = false) Double priceMax,
+            @RequestParam(required = false) Double ratingMin
+    ) {
+        ProductFacetsDTO facets = productService.getFacets(search, brands, categories, priceMin, priceMax, ratingMin);
+        return ResponseEntity.ok(facets);
     }
 
     @PostMapping
@@ -79,6 +168,9 @@ public class ProductController {
             Claims claims = (Claims) request.getAttribute("claims");
 
             String imagePath = thumbnail != null ? fileService.save(thumbnail) : null;
+            if (imagePath != null) {
+                imageVariantService.submit(imagePath); // ✅ resized variants are generated in the background
+            }
 
             Product product = new Product();
             product.setTitle(title);
@@ -108,19 +200,7 @@ public class ProductController {
             return ResponseEntity.notFound().build();
         }
 
-        Product product = optionalProduct.get();
-        String thumbnailName = product.getThumbnail();
-
-        if (thumbnailName != null && !thumbnailName.isBlank()) {
-            Path imagePath = Paths.get("uploads").resolve(thumbnailName).toAbsolutePath();
-            try {
-                Files.deleteIfExists(imagePath);
-                System.out.println("🗑️ Deleted image: " + imagePath);
-            } catch (IOException e) {
-                System.err.println("⚠️ Failed to delete image: " + imagePath);
-            }
-        }
-
+        // ✅ The image blob may be shared; the background upload GC reclaims it once unreferenced
         productService.delete(id);
         return ResponseEntity.ok("Product deleted successfully");
     }
@@ -152,27 +232,141 @@ public class ProductController {
         });
 
         Product updated = productService.save(product);
+        if (updates.containsKey("stock")) {
+            productService.stockOverwritten(updated);
+        }
         return ResponseEntity.ok(updated);
     }
 
+    // ✅ Manual stock correction, admin only; orders take stock through /api/checkout
     @PatchMapping("/{id}/decrement")
-    public ResponseEntity<?> decrementStock(@PathVariable String id,
+    public ResponseEntity<?> decrementStock(HttpServletRequest request, @PathVariable String id,
                                             @RequestBody Map<String, Integer> body) {
+        if (!isAdmin(request)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
         Integer decrementBy = body.get("decrementBy");
         if (decrementBy == null || decrementBy < 1) {
             return ResponseEntity.badRequest().body("Invalid decrement value");
         }
 
-        Optional<Product> optionalProduct = productService.getById(id);
-        if (optionalProduct.isEmpty()) {
+        try {
+            if (!productService.decrementStock(id, decrementBy)) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body("Insufficient stock");
+            }
+        } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Product not found");
         }
 
-        Product product = optionalProduct.get();
-        int newStock = Math.max(0, product.getStock() - decrementBy);
-        product.setStock(newStock);
-        Product updated = productService.save(product);
+        return ResponseEntity.ok(productService.findDTO(id).orElse(null));
+    }
 
-        return ResponseEntity.ok(updated);
+    // ✅ Flash-sale mode: stock for this product is held in memory until disabled
+    @PostMapping("/{id}/flash-sale")
+    public ResponseEntity<?> enableFlashSale(HttpServletRequest request, @PathVariable String id) {
+        if (!isAdmin(request)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (!reservationService.enable(id)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Product not found");
+        }
+        return ResponseEntity.ok(Map.of("status", "enabled"));
+    }
+
+    @DeleteMapping("/{id}/flash-sale")
+    public ResponseEntity<Map<String, String>> disableFlashSale(HttpServletRequest request, @PathVariable String id) {
+        if (!isAdmin(request)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        try {
+            reservationService.disable(id);
+        } catch (DataAccessException e) {
+            // ✅ Sales could not be written; the product stays in flash-sale mode so nothing is lost
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("error", "Could not flush flash-sale sales, try again"));
+        }
+        return ResponseEntity.ok(Map.of("status", "disabled"));
+    }
+
+    @GetMapping("/flash-sale")
+    public ResponseEntity<List<Map<String, Object>>> flashSaleStats() {
+        return ResponseEntity.ok(reservationService.stats());
+    }
+
+    // ✅ Hold units for the logged-in buyer; released automatically when the TTL runs out
+    @PostMapping("/{id}/reservations")
+    public ResponseEntity<?> reserveStock(HttpServletRequest request,
+                                          @PathVariable String id,
+                                          @RequestBody Map<String, Integer> body) {
+        UUID userId = userId(request);
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        Integer quantity = body.get("quantity");
+        if (quantity == null || quantity < 1) {
+            return ResponseEntity.badRequest().body("Invalid quantity");
+        }
+
+        try {
+            Optional<StockReservationService.Reservation> reservation = reservationService.reserve(id, quantity, userId);
+            if (reservation.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body("Insufficient stock");
+            }
+            return ResponseEntity.ok(reservation.get());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/reservations/{reservationId}")
+    public ResponseEntity<?> releaseReservation(HttpServletRequest request, @PathVariable String reservationId) {
+        UUID userId = userId(request);
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        if (!reservationService.release(reservationId, userId)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(Map.of("status", "released"));
+    }
+
+    // ✅ Thumbnail pipeline backpressure metrics
+    @GetMapping("/images/pipeline")
+    public ResponseEntity<Map<String, Object>> imagePipelineStats() {
+        return ResponseEntity.ok(imageVariantService.stats());
+    }
+
+    // ✅ Generate variants for uploads that predate the pipeline
+    @PostMapping("/images/backfill")
+    public ResponseEntity<?> backfillImageVariants(HttpServletRequest request) {
+        if (!isAdmin(request)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(Map.of("queued", imageVariantService.backfill()));
+    }
+
+    // ✅ Runs the unreferenced-upload sweep now instead of waiting for the schedule
+    @PostMapping("/images/gc")
+    public ResponseEntity<?> collectUploadGarbage(HttpServletRequest request) {
+        if (!isAdmin(request)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(Map.of("deleted", fileService.collectGarbage()));
+    }
+
+    // ✅ Subject of the JWT, or null when the request carries none
+    private static UUID userId(HttpServletRequest request) {
+        Claims claims = (Claims) request.getAttribute("claims");
+        if (claims == null || claims.getSubject() == null) return null;
+        try {
+            return UUID.fromString(claims.getSubject());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static boolean isAdmin(HttpServletRequest request) {
+        Claims claims = (Claims) request.getAttribute("claims");
+        return claims != null && Boolean.TRUE.equals(claims.get("isAdmin", Boolean.class));
     }
 }
@@ -0,0 +1,16 @@
+package com.ecommerce.backend.dto;
+
+public class CartOperationDTO {
+    private String op;        // ✅ add | set | remove
+    private String productId;
+    private Integer quantity; // ✅ add: units to add (default 1); set: new quantity; remove: ignored
+
+    public String getOp() { return op; }
+    public void setOp(String op) { this.op = op; }
+
+    public String getProductId() { return productId; }
+    public void setProductId(String productId) { this.productId = productId; }
+
+    public Integer getQuantity() { return quantity; }
+    public void setQuantity(Integer quantity) { this.quantity = quantity; }
+}
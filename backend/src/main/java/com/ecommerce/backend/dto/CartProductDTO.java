@@ -11,6 +11,12 @@ public class CartProductDTO {
     private String brand;
     private String unit;
 
+    // ✅ Used by the JPQL projection in CartItemRepository (products have no unit)
+    public CartProductDTO(String id, String title, String thumbnail, String description,
+                          double price, int quantity, String category, String brand) {
+        this(id, title, thumbnail, description, price, quantity, category, brand, null);
+    }
+
     public CartProductDTO(
             String id,
             String title,
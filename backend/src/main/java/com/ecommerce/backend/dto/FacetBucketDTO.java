@@ -0,0 +1,27 @@
+package com.ecommerce.backend.dto;
+
+public class FacetBucketDTO {
+    private String label;
+    private Double min; // ✅ inclusive, null = unbounded
+    private Double max; // ✅ exclusive, null = unbounded
+    private int count;
+
+    public FacetBucketDTO(String label, Double min, Double max, int count) {
+        this.label = label;
+        this.min = min;
+        this.max = max;
+        this.count = count;
+    }
+
+    public String getLabel() { return label; }
+    public void setLabel(String label) { this.label = label; }
+
+    public Double getMin() { return min; }
+    public void setMin(Double min) { this.min = min; }
+
+    public Double getMax() { return max; }
+    public void setMax(Double max) { this.max = max; }
+
+    public int getCount() { return count; }
+    public void setCount(int count) { this.count = count; }
+}
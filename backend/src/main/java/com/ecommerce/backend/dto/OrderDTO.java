@@ -9,6 +9,7 @@ public class OrderDTO {
     private List<ItemDTO> items;
 
     private double subtotal;
+    private double discount;
     private double shipping;
     private double tax;
     private double total;
@@ -29,6 +30,9 @@ public class OrderDTO {
     private String userName;
     private String userEmail;
 
+    // ✅ Flash-sale reservations to commit with this order
+    private List<String> reservationIds;
+
     // ✅ No-arg constructor for frameworks and manual use
     public OrderDTO() {}
 
@@ -45,6 +49,7 @@ public class OrderDTO {
     public UUID getUserId() { return userId; }
     public List<ItemDTO> getItems() { return items; }
     public double getSubtotal() { return subtotal; }
+    public double getDiscount() { return discount; }
     public double getShipping() { return shipping; }
     public double getTax() { return tax; }
     public double getTotal() { return total; }
@@ -59,12 +64,14 @@ public class OrderDTO {
     public String getAgentPhone() { return agentPhone; }
     public String getUserName() { return userName; }
     public String getUserEmail() { return userEmail; }
+    public List<String> getReservationIds() { return reservationIds; }
 
     // Setters
     public void setId(Long id) { this.id = id; }
     public void setUserId(UUID userId) { this.userId = userId; }
     public void setItems(List<ItemDTO> items) { this.items = items; }
     public void setSubtotal(double subtotal) { this.subtotal = subtotal; }
+    public void setDiscount(double discount) { this.discount = discount; }
     public void setShipping(double shipping) { this.shipping = shipping; }
     public void setTax(double tax) { this.tax = tax; }
     public void setTotal(double total) { this.total = total; }
@@ -79,4 +86,5 @@ public class OrderDTO {
     public void setAgentPhone(String agentPhone) { this.agentPhone = agentPhone; }
     public void setUserName(String userName) { this.userName = userName; }
     public void setUserEmail(String userEmail) { this.userEmail = userEmail; }
+    public void setReservationIds(List<String> reservationIds) { this.reservationIds = reservationIds; }
 }
@@ -0,0 +1,19 @@
+package com.ecommerce.backend.dto;
+
+import java.util.List;
+
+public class OrderPageDTO<T> {
+    private List<T> items;
+    private String nextCursor; // ✅ null when there are no more rows
+
+    public OrderPageDTO(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() { return items; }
+    public void setItems(List<T> items) { this.items = items; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+}
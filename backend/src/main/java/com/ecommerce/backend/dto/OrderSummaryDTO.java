@@ -0,0 +1,72 @@
+package com.ecommerce.backend.dto;
+
+import com.ecommerce.backend.service.OrderTimeline;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+
+// ✅ Admin list row without items; built directly by a JPQL constructor expression
+public class OrderSummaryDTO {
+    private Long id;
+    private UUID userId;
+    private String userName;
+    private String userEmail;
+    private double total;
+    private String status;
+    private String paymentMethod;
+    private String orderedTime;
+    private String deliveryDate;
+    private String agentName;
+    private String agentPhone;
+
+    public OrderSummaryDTO(Long id, UUID userId, String userName, String userEmail, double total,
+                           String status, String paymentMethod,
+                           Instant orderedAt, String orderedTime, LocalDate deliveryOn, String deliveryDate,
+                           String agentName, String agentPhone) {
+        this.id = id;
+        this.userId = userId;
+        this.userName = userName;
+        this.userEmail = userEmail;
+        this.total = total;
+        this.status = status;
+        this.paymentMethod = paymentMethod;
+        this.orderedTime = orderedAt != null ? OrderTimeline.formatPlaced(orderedAt) : orderedTime;
+        this.deliveryDate = deliveryOn != null ? deliveryOn.toString() : deliveryDate;
+        this.agentName = agentName;
+        this.agentPhone = agentPhone;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public UUID getUserId() { return userId; }
+    public void setUserId(UUID userId) { this.userId = userId; }
+
+    public String getUserName() { return userName; }
+    public void setUserName(String userName) { this.userName = userName; }
+
+    public String getUserEmail() { return userEmail; }
+    public void setUserEmail(String userEmail) { this.userEmail = userEmail; }
+
+    public double getTotal() { return total; }
+    public void setTotal(double total) { this.total = total; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public String getPaymentMethod() { return paymentMethod; }
+    public void setPaymentMethod(String paymentMethod) { this.paymentMethod = paymentMethod; }
+
+    public String getOrderedTime() { return orderedTime; }
+    public void setOrderedTime(String orderedTime) { this.orderedTime = orderedTime; }
+
+    public String getDeliveryDate() { return deliveryDate; }
+    public void setDeliveryDate(String deliveryDate) { this.deliveryDate = deliveryDate; }
+
+    public String getAgentName() { return agentName; }
+    public void setAgentName(String agentName) { this.agentName = agentName; }
+
+    public String getAgentPhone() { return agentPhone; }
+    public void setAgentPhone(String agentPhone) { this.agentPhone = agentPhone; }
+}
@@ -1,6 +1,7 @@
 package com.ecommerce.backend.dto;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 
 public class ProductDTO {
     private String id;
@@ -11,6 +12,7 @@ public class ProductDTO {
     private double rating;
     private String brand;
     private String thumbnail;
+    private Map<Integer, String> thumbnailVariants; // ✅ width -> URL of the resized copy
     private double discountPercentage;
     private LocalDateTime updatedAt;
 
@@ -39,6 +41,9 @@ public class ProductDTO {
     public String getThumbnail() { return thumbnail; }
     public void setThumbnail(String thumbnail) { this.thumbnail = thumbnail; }
 
+    public Map<Integer, String> getThumbnailVariants() { return thumbnailVariants; }
+    public void setThumbnailVariants(Map<Integer, String> thumbnailVariants) { this.thumbnailVariants = thumbnailVariants; }
+
     public double getDiscountPercentage() { return discountPercentage; }
     public void setDiscountPercentage(double discountPercentage) { this.discountPercentage = discountPercentage; }
 
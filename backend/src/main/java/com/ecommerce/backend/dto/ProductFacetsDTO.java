@@ -0,0 +1,27 @@
+package com.ecommerce.backend.dto;
+
+import java.util.List;
+import java.util.Map;
+
+public class ProductFacetsDTO {
+    private int total;
+    private Map<String, Integer> brands;
+    private Map<String, Integer> categories;
+    private List<FacetBucketDTO> priceBuckets;
+    private List<FacetBucketDTO> ratingBuckets;
+
+    public int getTotal() { return total; }
+    public void setTotal(int total) { this.total = total; }
+
+    public Map<String, Integer> getBrands() { return brands; }
+    public void setBrands(Map<String, Integer> brands) { this.brands = brands; }
+
+    public Map<String, Integer> getCategories() { return categories; }
+    public void setCategories(Map<String, Integer> categories) { this.categories = categories; }
+
+    public List<FacetBucketDTO> getPriceBuckets() { return priceBuckets; }
+    public void setPriceBuckets(List<FacetBucketDTO> priceBuckets) { this.priceBuckets = priceBuckets; }
+
+    public List<FacetBucketDTO> getRatingBuckets() { return ratingBuckets; }
+    public void setRatingBuckets(List<FacetBucketDTO> ratingBuckets) { this.ratingBuckets = ratingBuckets; }
+}
@@ -0,0 +1,27 @@
+package com.ecommerce.backend.dto;
+
+public class SalesRollupDTO {
+    private String bucket; // ✅ day (yyyy-MM-dd), category or payment method depending on groupBy
+    private long orders;
+    private long units;
+    private double revenue;
+
+    public SalesRollupDTO(String bucket, long orders, long units, double revenue) {
+        this.bucket = bucket;
+        this.orders = orders;
+        this.units = units;
+        this.revenue = revenue;
+    }
+
+    public String getBucket() { return bucket; }
+    public void setBucket(String bucket) { this.bucket = bucket; }
+
+    public long getOrders() { return orders; }
+    public void setOrders(long orders) { this.orders = orders; }
+
+    public long getUnits() { return units; }
+    public void setUnits(long units) { this.units = units; }
+
+    public double getRevenue() { return revenue; }
+    public void setRevenue(double revenue) { this.revenue = revenue; }
+}
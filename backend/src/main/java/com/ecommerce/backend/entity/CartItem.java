@@ -6,7 +6,9 @@ import jakarta.persistence.*;
 import java.util.UUID;
 
 @Entity
-@Table(name = "user_cart")
+@Table(name = "user_cart", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_user_cart_user_product", columnNames = {"user_id", "product_id"})
+})
 public class CartItem {
 
     @Id
@@ -1,9 +1,11 @@
 package com.ecommerce.backend.entity;
 
+import com.ecommerce.backend.service.DeliveryDispatcher;
 import jakarta.persistence.*;
 
 @Entity
 @Table(name = "delivery_agents")
+@EntityListeners(DeliveryDispatcher.RosterListener.class)
 public class DeliveryAgent {
 
     @Id
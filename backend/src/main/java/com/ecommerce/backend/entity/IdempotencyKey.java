@@ -0,0 +1,43 @@
+package com.ecommerce.backend.entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Idempotency-Key of a placed order. The primary key makes a second insert of
+ * the same key fail, which is what catches duplicates across nodes and
+ * restarts; the row is written in the same transaction as the order.
+ */
+@Entity
+@Table(name = "idempotency_keys", indexes = {
+        @Index(name = "idx_idempotency_keys_created_at", columnList = "created_at")
+})
+public class IdempotencyKey {
+
+    @Id
+    @Column(name = "idem_key", length = 100)
+    private String key;
+
+    @Column(name = "user_id")
+    private UUID userId;
+
+    @Column(name = "order_id")
+    private Long orderId;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    public String getKey() { return key; }
+    public void setKey(String key) { this.key = key; }
+
+    public UUID getUserId() { return userId; }
+    public void setUserId(UUID userId) { this.userId = userId; }
+
+    public Long getOrderId() { return orderId; }
+    public void setOrderId(Long orderId) { this.orderId = orderId; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+}
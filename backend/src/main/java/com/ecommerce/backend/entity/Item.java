@@ -7,8 +7,11 @@ import jakarta.persistence.*;
 @Table(name = "items")
 public class Item {
 
+    // ✅ Pooled table ids (blocks of 50) instead of IDENTITY, so Hibernate can batch the inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "items_ids")
+    @TableGenerator(name = "items_ids", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "items", allocationSize = 50)
     private Long id;
 
     // ✅ Store productId as UUID string to match products.id
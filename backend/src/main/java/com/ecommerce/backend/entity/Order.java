@@ -2,17 +2,27 @@ package com.ecommerce.backend.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_next_status_at", columnList = "next_status_at"),
+        @Index(name = "idx_orders_status_ordered_at", columnList = "status, ordered_at"),
+        @Index(name = "idx_orders_delivery_on", columnList = "delivery_on")
+})
 public class Order {
 
+    // ✅ Pooled table ids (blocks of 50) instead of IDENTITY, so Hibernate can batch the inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "orders_ids")
+    @TableGenerator(name = "orders_ids", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "orders", allocationSize = 50)
     private Long id;
 
     private double subtotal;
+    private double discount;
     private double shipping;
     private double tax;
     private double total;
@@ -25,6 +35,20 @@ public class Order {
     private String status;
     private String paymentMethod;
 
+    // ✅ Typed copies of orderedTime / orderedDate / deliveryDate, parsed once on write
+    @Column(name = "ordered_at")
+    private Instant orderedAt;
+
+    @Column(name = "ordered_on")
+    private LocalDate orderedOn;
+
+    @Column(name = "delivery_on")
+    private LocalDate deliveryOn;
+
+    // ✅ When the time-driven status next changes; null for Delivered/Cancelled (see OrderTimeline)
+    @Column(name = "next_status_at")
+    private Instant nextStatusAt;
+
     @ManyToOne
     @JoinColumn(name = "user_id")
     @JsonIgnore
@@ -46,6 +70,9 @@ public class Order {
     public double getSubtotal() { return subtotal; }
     public void setSubtotal(double subtotal) { this.subtotal = subtotal; }
 
+    public double getDiscount() { return discount; }
+    public void setDiscount(double discount) { this.discount = discount; }
+
     public double getShipping() { return shipping; }
     public void setShipping(double shipping) { this.shipping = shipping; }
 
@@ -76,6 +103,18 @@ public class Order {
     public String getPaymentMethod() { return paymentMethod; }
     public void setPaymentMethod(String paymentMethod) { this.paymentMethod = paymentMethod; }
 
+    public Instant getOrderedAt() { return orderedAt; }
+    public void setOrderedAt(Instant orderedAt) { this.orderedAt = orderedAt; }
+
+    public LocalDate getOrderedOn() { return orderedOn; }
+    public void setOrderedOn(LocalDate orderedOn) { this.orderedOn = orderedOn; }
+
+    public LocalDate getDeliveryOn() { return deliveryOn; }
+    public void setDeliveryOn(LocalDate deliveryOn) { this.deliveryOn = deliveryOn; }
+
+    public Instant getNextStatusAt() { return nextStatusAt; }
+    public void setNextStatusAt(Instant nextStatusAt) { this.nextStatusAt = nextStatusAt; }
+
     public User getUser() { return user; }
     public void setUser(User user) { this.user = user; }
 
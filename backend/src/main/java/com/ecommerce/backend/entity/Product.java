@@ -1,6 +1,7 @@
 package com.ecommerce.backend.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
@@ -8,6 +9,7 @@ import java.util.Objects;
 
 @Entity
 @Table(name = "products")
+@DynamicUpdate // ✅ Only changed columns are written, so field edits never overwrite concurrent stock updates
 public class Product {
 
     @Id
@@ -0,0 +1,86 @@
+package com.ecommerce.backend.entity;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Pre-aggregated sales per day x category x payment method, maintained by
+ * SalesRollupService. Category "*" holds the order-level totals for the day
+ * and payment method, so order counts are exact even when an order spans
+ * several categories.
+ */
+@Entity
+@Table(name = "sales_rollups")
+@IdClass(SalesRollup.Key.class)
+public class SalesRollup {
+
+    @Id
+    @Column(name = "sales_day", nullable = false)
+    private LocalDate day;
+
+    @Id
+    @Column(name = "category", length = 100, nullable = false)
+    private String category;
+
+    @Id
+    @Column(name = "payment_method", length = 50, nullable = false)
+    private String paymentMethod;
+
+    @Column(name = "order_count", nullable = false)
+    private long orderCount;
+
+    @Column(nullable = false)
+    private long units;
+
+    @Column(nullable = false)
+    private double revenue;
+
+    public LocalDate getDay() { return day; }
+    public void setDay(LocalDate day) { this.day = day; }
+
+    public String getCategory() { return category; }
+    public void setCategory(String category) { this.category = category; }
+
+    public String getPaymentMethod() { return paymentMethod; }
+    public void setPaymentMethod(String paymentMethod) { this.paymentMethod = paymentMethod; }
+
+    public long getOrderCount() { return orderCount; }
+    public void setOrderCount(long orderCount) { this.orderCount = orderCount; }
+
+    public long getUnits() { return units; }
+    public void setUnits(long units) { this.units = units; }
+
+    public double getRevenue() { return revenue; }
+    public void setRevenue(double revenue) { this.revenue = revenue; }
+
+    public static class Key implements Serializable {
+        private LocalDate day;
+        private String category;
+        private String paymentMethod;
+
+        public Key() {
+        }
+
+        public Key(LocalDate day, String category, String paymentMethod) {
+            this.day = day;
+            this.category = category;
+            this.paymentMethod = paymentMethod;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return Objects.equals(day, key.day) && Objects.equals(category, key.category)
+                    && Objects.equals(paymentMethod, key.paymentMethod);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(day, category, paymentMethod);
+        }
+    }
+}
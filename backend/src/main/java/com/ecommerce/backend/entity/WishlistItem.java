@@ -5,7 +5,9 @@ import jakarta.persistence.*;
 import java.util.UUID;
 
 @Entity
-@Table(name = "user_wishlist")
+@Table(name = "user_wishlist", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_user_wishlist_user_product", columnNames = {"user_id", "product_id"})
+})
 public class WishlistItem {
 
     @Id
@@ -1,10 +1,12 @@
 package com.ecommerce.backend.repository;
 
+import com.ecommerce.backend.dto.CartProductDTO;
 import com.ecommerce.backend.entity.CartItem;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -14,12 +16,37 @@ public interface CartItemRepository extends JpaRepository<CartItem, UUID> {
     // ✅ Fetch all cart items for a user
     List<CartItem> findByUserId(UUID userId);
 
+    // ✅ Cart view in one joined SELECT, straight into DTOs (no entity or lazy product loads); description is a short preview
+    @Query("SELECT new com.ecommerce.backend.dto.CartProductDTO(p.id, p.title, p.thumbnail, SUBSTRING(p.description, 1, 160), " +
+            "p.price, c.quantity, p.category, p.brand) " +
+            "FROM CartItem c JOIN c.product p WHERE c.user.id = :userId")
+    List<CartProductDTO> findCartViewByUserId(@Param("userId") UUID userId);
+
     // ✅ Find specific cart item by user and product
     Optional<CartItem> findByUserIdAndProductId(UUID userId, String productId);
 
+    // ✅ Add one unit in a single statement; the (user_id, product_id) unique key turns a repeat into an increment
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO user_cart (id, user_id, product_id, quantity) VALUES (:id, :userId, :productId, 1) " +
+            "ON DUPLICATE KEY UPDATE quantity = quantity + 1", nativeQuery = true)
+    int upsertIncrement(@Param("id") UUID id, @Param("userId") UUID userId, @Param("productId") String productId);
+
     // ✅ Delete specific cart item (now accepts String productId)
     @Modifying
     @Transactional
     @Query("DELETE FROM CartItem c WHERE c.user.id = :userId AND c.product.id = :productId")
     void deleteByUserIdAndProductId(@Param("userId") UUID userId, @Param("productId") String productId);
+
+    // ✅ Whole cart in one statement
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM CartItem c WHERE c.user.id = :userId")
+    int deleteByUserId(@Param("userId") UUID userId);
+
+    // ✅ Set-based delete of several lines in one statement
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM CartItem c WHERE c.user.id = :userId AND c.product.id IN :productIds")
+    int deleteByUserIdAndProductIdIn(@Param("userId") UUID userId, @Param("productIds") Collection<String> productIds);
 }
@@ -1,11 +1,31 @@
 package com.ecommerce.backend.repository;
 
 import com.ecommerce.backend.entity.Order;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
-public interface OrderRepository extends JpaRepository<Order, Long> {
+public interface OrderRepository extends JpaRepository<Order, Long>, OrderRepositoryCustom {
     List<Order> findByUserId(UUID userId);
+
+    // ✅ Open orders per delivery agent, one grouped scan for the dispatcher
+    @Query("SELECT o.deliveryAgent.id, COUNT(o) FROM Order o " +
+            "WHERE o.deliveryAgent IS NOT NULL AND (o.status IS NULL OR o.status NOT IN :terminal) " +
+            "GROUP BY o.deliveryAgent.id")
+    List<Object[]> countActiveByAgent(@Param("terminal") List<String> terminal);
+
+    // ✅ Status and owner id (empty list when the order does not exist); seeds SSE subscribers without loading the order
+    @Query("SELECT o.status, o.user.id FROM Order o WHERE o.id = :id")
+    List<Object[]> findStatusAndOwnerById(@Param("id") Long id);
+
+    // ✅ SELECT ... FOR UPDATE: a concurrent cancel or scheduler transition waits for this transaction
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.id = :id")
+    Optional<Order> findByIdForUpdate(@Param("id") Long id);
 }
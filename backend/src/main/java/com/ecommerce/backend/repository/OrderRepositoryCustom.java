@@ -0,0 +1,16 @@
+package com.ecommerce.backend.repository;
+
+import com.ecommerce.backend.dto.OrderSummaryDTO;
+import com.ecommerce.backend.entity.Order;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+// ✅ Admin listing: filtered, keyset-paged (newest first) reads with no lazy loading per row
+public interface OrderRepositoryCustom {
+
+    List<Order> findPageWithDetails(String status, LocalDate from, LocalDate to, UUID userId, Long beforeId, int limit);
+
+    List<OrderSummaryDTO> findSummaryPage(String status, LocalDate from, LocalDate to, UUID userId, Long beforeId, int limit);
+}
@@ -0,0 +1,82 @@
+package com.ecommerce.backend.repository;
+
+import com.ecommerce.backend.dto.OrderSummaryDTO;
+import com.ecommerce.backend.entity.Order;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Two queries per page at most: orders with user and agent fetch-joined, then
+ * the items of just those orders in a single IN load into the same persistence
+ * context. Date filters match orderedDate (a UTC date) through the indexed
+ * ordered_at column.
+ */
+public class OrderRepositoryCustomImpl implements OrderRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Order> findPageWithDetails(String status, LocalDate from, LocalDate to, UUID userId, Long beforeId, int limit) {
+        Map<String, Object> params = new HashMap<>();
+        String where = where(status, from, to, userId, beforeId, params);
+
+        TypedQuery<Order> query = entityManager.createQuery(
+                "SELECT o FROM Order o JOIN FETCH o.user u LEFT JOIN FETCH o.deliveryAgent a" + where + " ORDER BY o.id DESC",
+                Order.class);
+        params.forEach(query::setParameter);
+        List<Order> orders = query.setMaxResults(limit).getResultList();
+        if (orders.isEmpty()) return orders;
+
+        // ✅ Initializes every order's items collection from one query
+        entityManager.createQuery("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.items WHERE o.id IN :ids", Order.class)
+                .setParameter("ids", orders.stream().map(Order::getId).toList())
+                .getResultList();
+        return orders;
+    }
+
+    @Override
+    public List<OrderSummaryDTO> findSummaryPage(String status, LocalDate from, LocalDate to, UUID userId, Long beforeId, int limit) {
+        Map<String, Object> params = new HashMap<>();
+        String where = where(status, from, to, userId, beforeId, params);
+
+        TypedQuery<OrderSummaryDTO> query = entityManager.createQuery(
+                "SELECT new com.ecommerce.backend.dto.OrderSummaryDTO(o.id, u.id, u.username, u.email, o.total, " +
+                        "o.status, o.paymentMethod, o.orderedAt, o.orderedTime, o.deliveryOn, o.deliveryDate, a.name, a.phone) " +
+                        "FROM Order o JOIN o.user u LEFT JOIN o.deliveryAgent a" + where + " ORDER BY o.id DESC",
+                OrderSummaryDTO.class);
+        params.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    private static String where(String status, LocalDate from, LocalDate to, UUID userId, Long beforeId,
+                                Map<String, Object> params) {
+        List<String> clauses = new ArrayList<>();
+        if (status != null && !status.isBlank()) {
+            clauses.add("o.status = :status");
+            params.put("status", status);
+        }
+        if (from != null) {
+            clauses.add("o.orderedAt >= :from");
+            params.put("from", from.atStartOfDay(ZoneOffset.UTC).toInstant());
+        }
+        if (to != null) {
+            clauses.add("o.orderedAt < :to");
+            params.put("to", to.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant());
+        }
+        if (userId != null) {
+            clauses.add("u.id = :userId");
+            params.put("userId", userId);
+        }
+        if (beforeId != null) {
+            clauses.add("o.id < :beforeId");
+            params.put("beforeId", beforeId);
+        }
+        return clauses.isEmpty() ? "" : " WHERE " + String.join(" AND ", clauses);
+    }
+}
@@ -1,13 +1,42 @@
 package com.ecommerce.backend.repository;
 
+import com.ecommerce.backend.dto.CartProductDTO;
 import com.ecommerce.backend.entity.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
-public interface ProductRepository extends JpaRepository<Product, String> {
+public interface ProductRepository extends JpaRepository<Product, String>, JpaSpecificationExecutor<Product> {
     List<Product> findByCategoryIgnoreCase(String category);
 
+    List<Product> findByThumbnail(String thumbnail);
+
+    // ✅ Reference counts for the content-addressed upload store
+    @Query("SELECT p.thumbnail, COUNT(p) FROM Product p WHERE p.thumbnail IS NOT NULL GROUP BY p.thumbnail")
+    List<Object[]> countThumbnailReferences();
+
+    // ✅ Cart line view of one product (quantity 0), for carts held in memory
+    @Query("SELECT new com.ecommerce.backend.dto.CartProductDTO(p.id, p.title, p.thumbnail, SUBSTRING(p.description, 1, 160), " +
+            "p.price, 0, p.category, p.brand) FROM Product p WHERE p.id = :id")
+    Optional<CartProductDTO> findCartLine(@Param("id") String id);
+
+    @Query("SELECT p.id FROM Product p WHERE p.id IN :ids")
+    List<String> findExistingIds(@Param("ids") Collection<String> ids);
+
     // ✅ NEW METHOD for Deal of the Day
     List<Product> findByDiscountPercentageGreaterThanEqual(double discountThreshold);
+
+    // ✅ Atomic conditional decrement: returns 0 when the product is missing or stock is too low
+    @Modifying
+    @Transactional
+    @Query("UPDATE Product p SET p.stock = p.stock - :quantity, p.updatedAt = local datetime " +
+            "WHERE p.id = :id AND p.stock >= :quantity")
+    int decrementStockIfAvailable(@Param("id") String id, @Param("quantity") int quantity);
 }
@@ -0,0 +1,90 @@
+package com.ecommerce.backend.repository;
+
+import com.ecommerce.backend.entity.Product;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Criteria predicates for the /api/products/filter query so filtering, sorting
+ * and paging all run inside MySQL.
+ */
+public final class ProductSpecifications {
+
+    private ProductSpecifications() {
+    }
+
+    // ✅ Same filters as the in-memory pipeline: title substring, brand/category membership, price/rating bounds
+    public static Specification<Product> matching(String search,
+                                                  List<String> brands,
+                                                  List<String> categories,
+                                                  Double priceMin,
+                                                  Double priceMax,
+                                                  Double ratingMin) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+
+            if (search != null) {
+                String pattern = "%" + escapeLike(search.toLowerCase()) + "%";
+                predicates.add(cb.like(cb.lower(root.get("title")), pattern, '\\'));
+            }
+            if (brands != null && !brands.isEmpty()) {
+                predicates.add(root.get("brand").in(brands));
+            }
+            if (categories != null && !categories.isEmpty()) {
+                predicates.add(root.get("category").in(categories));
+            }
+            if (priceMin != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("price"), priceMin));
+            }
+            if (priceMax != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("price"), priceMax));
+            }
+            if (ratingMin != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("rating"), ratingMin));
+            }
+
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    /**
+     * Keyset predicate: rows strictly after (sortValue, id) in the order given by
+     * {@link #sortFor(String)}. Ties on the sort column are broken by id ascending.
+     */
+    public static Specification<Product> after(String sort, Double sortValue, String id) {
+        return (root, query, cb) -> {
+            if (id == null) return cb.conjunction();
+
+            Predicate idAfter = cb.greaterThan(root.get("id"), id);
+            String column = sortColumn(sort);
+            if (column == null || sortValue == null) return idAfter;
+
+            Predicate beyond = "price-asc".equals(sort)
+                    ? cb.greaterThan(root.get(column), sortValue)
+                    : cb.lessThan(root.get(column), sortValue);
+
+            return cb.or(beyond, cb.and(cb.equal(root.get(column), sortValue), idAfter));
+        };
+    }
+
+    public static Sort sortFor(String sort) {
+        if ("price-asc".equals(sort)) return Sort.by(Sort.Order.asc("price"), Sort.Order.asc("id"));
+        if ("price-desc".equals(sort)) return Sort.by(Sort.Order.desc("price"), Sort.Order.asc("id"));
+        if ("rating".equals(sort)) return Sort.by(Sort.Order.desc("rating"), Sort.Order.asc("id"));
+        return Sort.by(Sort.Order.asc("id"));
+    }
+
+    public static String sortColumn(String sort) {
+        if ("price-asc".equals(sort) || "price-desc".equals(sort)) return "price";
+        if ("rating".equals(sort)) return "rating";
+        return null;
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
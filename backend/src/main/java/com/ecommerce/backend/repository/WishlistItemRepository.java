@@ -1,7 +1,9 @@
 package com.ecommerce.backend.repository;
 
+import com.ecommerce.backend.dto.WishlistProductDTO;
 import com.ecommerce.backend.entity.WishlistItem;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
@@ -12,8 +14,20 @@ public interface WishlistItemRepository extends JpaRepository<WishlistItem, UUID
 
     List<WishlistItem> findByUserId(UUID userId);
 
+    // ✅ Wishlist view in one joined SELECT, straight into DTOs; description is a short preview
+    @Query("SELECT new com.ecommerce.backend.dto.WishlistProductDTO(p.id, p.title, p.thumbnail, SUBSTRING(p.description, 1, 160), p.price) " +
+            "FROM WishlistItem w JOIN w.product p WHERE w.user.id = :userId")
+    List<WishlistProductDTO> findWishlistViewByUserId(@Param("userId") UUID userId);
+
     Optional<WishlistItem> findByUserIdAndProductId(UUID userId, String productId);
 
+    // ✅ Single-statement add; a repeat hits the (user_id, product_id) unique key and changes nothing
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO user_wishlist (id, user_id, product_id) VALUES (:id, :userId, :productId) " +
+            "ON DUPLICATE KEY UPDATE id = id", nativeQuery = true)
+    int insertIfAbsent(@Param("id") UUID id, @Param("userId") UUID userId, @Param("productId") String productId);
+
     @Transactional
     @Modifying
     @Query("DELETE FROM WishlistItem w WHERE w.user.id = :userId AND w.product.id = :productId")
@@ -1,62 +1,277 @@
 package com.ecommerce.backend.scheduler;
 
-import com.ecommerce.backend.entity.Order;
-import com.ecommerce.backend.repository.OrderRepository;
-import jakarta.transaction.Transactional;
+import com.ecommerce.backend.service.DeliveryDispatcher;
+import com.ecommerce.backend.service.OrderEventHub;
+import com.ecommerce.backend.service.OrderTimeline;
+import com.ecommerce.backend.service.OrderTransitionTimers;
+import com.ecommerce.backend.service.TransactionCallbacks;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.ByteBuffer;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
 import java.time.*;
-import java.time.format.DateTimeFormatter;
-import java.util.List;
+import java.util.*;
 
+/**
+ * Advances time-driven order statuses.
+ *
+ * Transitions normally fire from {@link OrderTransitionTimers} at their due
+ * time. The periodic poll is the backstop: it reads only orders whose
+ * orders.next_status_at is due, in id-ordered pages of bounded size. Either
+ * way each batch runs in its own short transaction, status changes are written
+ * as one JDBC batch per (old, new) status pair, and rows whose status did not
+ * change only get their next due time moved forward.
+ */
 @Component
 public class OrderStatusScheduler {
 
+    private static final Logger logger = LoggerFactory.getLogger(OrderStatusScheduler.class);
+
+    // ✅ Hibernate stores Instant columns as UTC wall time on MySQL; bind the same way
+    private static final Calendar UTC = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+
+    private static final String TERMINAL = "('Delivered', 'Cancelled')";
+
     @Autowired
-    private OrderRepository orderRepository;
+    private JdbcTemplate jdbcTemplate;
 
-    private final DateTimeFormatter formatter = DateTimeFormatter.ISO_DATE_TIME;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
 
-    @Scheduled(fixedRate = 5 * 60 * 1000) // ✅ Runs every 5 minutes
-    @Transactional
-    public void updateOrderStatuses() {
-        List<Order> orders = orderRepository.findAll();
-        LocalDateTime now = LocalDateTime.now(ZoneId.of("Asia/Kolkata")); // ✅ Use IST for comparison
+    @Autowired
+    private DeliveryDispatcher deliveryDispatcher;
+
+    @Autowired
+    private OrderTransitionTimers transitionTimers;
 
-        for (Order order : orders) {
-            if ("Cancelled".equals(order.getStatus())) continue;
+    @Autowired
+    private OrderEventHub orderEventHub;
 
-            try {
-                // ✅ Parse orderedTime as UTC and convert to IST
-                ZonedDateTime placedUtc = ZonedDateTime.parse(order.getOrderedTime(), formatter.withZone(ZoneOffset.UTC));
-                LocalDateTime placed = placedUtc.withZoneSameInstant(ZoneId.of("Asia/Kolkata")).toLocalDateTime();
+    @Value("${orders.status.page-size:500}")
+    private int pageSize;
 
-                // ✅ Parse deliveryDate as local date
-                LocalDate delivery = LocalDate.parse(order.getDeliveryDate());
+    private record DueOrder(long id, Instant placed, LocalDate delivery, String status, Long agentId, UUID userId) {
+    }
 
-                long seconds = Duration.between(placed, now).getSeconds();
+    private static final String DUE_COLUMNS =
+            "id, ordered_at, delivery_on, ordered_time, delivery_date, status, agent_id, user_id";
 
-                String newStatus = order.getStatus();
+    @PostConstruct
+    public void registerTimerHandler() {
+        transitionTimers.onDue(this::applyDue);
+    }
 
-                if (now.toLocalDate().equals(delivery)) {
-                    newStatus = "Delivered";
-                } else if (seconds >= 3600) {
-                    newStatus = "Out for Delivery";
-                } else if (seconds >= 1800) {
-                    newStatus = "Shipped";
-                } else {
-                    newStatus = "Ordered";
-                }
+    // ✅ Startup: backfill due times for older orders, then load every pending transition into the wheel
+    @EventListener(ApplicationReadyEvent.class)
+    public void initTransitions() {
+        backfillDueTimes();
+        rebuildTimers();
+    }
+
+    private void rebuildTimers() {
+        long lastId = 0;
+        int loaded = 0;
+        while (true) {
+            Map<Long, Instant> dueTimes = new LinkedHashMap<>();
+            jdbcTemplate.query(
+                    "SELECT id, next_status_at FROM orders WHERE next_status_at IS NOT NULL AND id > ? ORDER BY id LIMIT ?",
+                    rs -> {
+                        dueTimes.put(rs.getLong("id"), rs.getTimestamp("next_status_at", (Calendar) UTC.clone()).toInstant());
+                    },
+                    lastId, pageSize);
+            if (dueTimes.isEmpty()) break;
 
-                order.setStatus(newStatus);
-            } catch (Exception e) {
-                System.err.println("⚠️ Failed to parse dates for order ID " + order.getId());
+            transitionTimers.scheduleAll(dueTimes);
+            loaded += dueTimes.size();
+            for (Long id : dueTimes.keySet()) lastId = id;
+        }
+        logger.info("Order transition timers rebuilt with {} pending orders", loaded);
+    }
+
+    // ✅ Called from the timer thread with every order that fell due in one tick
+    public void applyDue(List<Long> orderIds) {
+        Instant now = Instant.now();
+        for (int from = 0; from < orderIds.size(); from += pageSize) {
+            List<Long> chunk = orderIds.subList(from, Math.min(orderIds.size(), from + pageSize));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            List<DueOrder> page = jdbcTemplate.query(
+                    "SELECT " + DUE_COLUMNS + " FROM orders " +
+                            "WHERE next_status_at IS NOT NULL AND id IN (" + placeholders + ")",
+                    (rs, i) -> mapRow(rs), chunk.toArray());
+            if (!page.isEmpty()) {
+                transactionTemplate.execute(tx -> applyPage(page, now));
             }
         }
+    }
+
+    private void backfillDueTimes() {
+        Instant now = Instant.now();
+        long lastId = 0;
+        int updated = 0;
+        while (true) {
+            List<DueOrder> page = jdbcTemplate.query(
+                    "SELECT " + DUE_COLUMNS + " FROM orders " +
+                            "WHERE next_status_at IS NULL AND (status IS NULL OR status NOT IN " + TERMINAL + ") " +
+                            "AND id > ? ORDER BY id LIMIT ?",
+                    (rs, i) -> mapRow(rs), lastId, pageSize);
+            if (page.isEmpty()) break;
+            lastId = page.get(page.size() - 1).id();
 
-        orderRepository.saveAll(orders);
-        System.out.println("✅ Order statuses updated by scheduler.");
+            List<Object[]> rows = new ArrayList<>();
+            for (DueOrder order : page) {
+                Instant due = OrderTimeline.dueAt(order.placed(), order.delivery(), order.status(), now);
+                if (due != null) rows.add(new Object[]{due, order.id()});
+            }
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate("UPDATE orders SET next_status_at = ? WHERE id = ? AND next_status_at IS NULL",
+                        rows, rows.size(), (ps, row) -> {
+                            setInstant(ps, 1, (Instant) row[0]);
+                            ps.setLong(2, (Long) row[1]);
+                        });
+                updated += rows.size();
+            }
+        }
+        if (updated > 0) {
+            logger.info("Backfilled next_status_at for {} orders", updated);
+        }
+    }
+
+    @Scheduled(fixedRateString = "${orders.status.interval-ms:300000}") // ✅ Runs every 5 minutes by default
+    public void updateOrderStatuses() {
+        Instant now = Instant.now();
+        long lastId = 0;
+        int changed = 0;
+        while (true) {
+            long afterId = lastId;
+            List<DueOrder> page = jdbcTemplate.query(
+                    "SELECT " + DUE_COLUMNS + " FROM orders " +
+                            "WHERE next_status_at <= ? AND id > ? ORDER BY id LIMIT ?",
+                    ps -> {
+                        setInstant(ps, 1, now);
+                        ps.setLong(2, afterId);
+                        ps.setInt(3, pageSize);
+                    },
+                    (rs, i) -> mapRow(rs));
+            if (page.isEmpty()) break;
+            lastId = page.get(page.size() - 1).id();
+
+            Integer pageChanged = transactionTemplate.execute(tx -> applyPage(page, now));
+            changed += pageChanged != null ? pageChanged : 0;
+            if (page.size() < pageSize) break;
+        }
+        if (changed > 0) {
+            logger.info("Order statuses updated by scheduler: {} changed", changed);
+        }
+    }
+
+    private int applyPage(List<DueOrder> page, Instant now) {
+        Map<List<String>, List<DueOrder>> transitions = new LinkedHashMap<>();
+        List<Object[]> dueUpdates = new ArrayList<>();
+
+        for (DueOrder order : page) {
+            String newStatus;
+            Instant nextAt;
+            if (OrderTimeline.isTerminal(order.status())) {
+                newStatus = order.status();
+                nextAt = null;
+            } else if (order.placed() == null || order.delivery() == null) {
+                logger.warn("⚠️ Missing order or delivery date for order ID {}", order.id());
+                newStatus = order.status();
+                nextAt = null;
+            } else {
+                newStatus = OrderTimeline.statusAt(order.placed(), order.delivery(), now);
+                nextAt = OrderTimeline.nextTransition(order.placed(), order.delivery(), now);
+            }
+
+            if (!Objects.equals(newStatus, order.status())) {
+                transitions.computeIfAbsent(Arrays.asList(order.status(), newStatus), k -> new ArrayList<>()).add(order);
+            }
+            dueUpdates.add(new Object[]{nextAt, order.id(), newStatus});
+        }
+
+        int changed = 0;
+        for (Map.Entry<List<String>, List<DueOrder>> transition : transitions.entrySet()) {
+            changed += applyTransition(transition.getKey().get(0), transition.getKey().get(1), transition.getValue());
+        }
+
+        // ✅ Guarded by the expected status so a concurrent cancel is never overwritten
+        jdbcTemplate.batchUpdate("UPDATE orders SET next_status_at = ? WHERE id = ? AND status <=> ?",
+                dueUpdates, dueUpdates.size(), (ps, row) -> {
+                    setInstant(ps, 1, (Instant) row[0]);
+                    ps.setLong(2, (Long) row[1]);
+                    ps.setString(3, (String) row[2]);
+                });
+
+        Map<Long, Instant> nextTimers = new HashMap<>();
+        for (Object[] row : dueUpdates) {
+            nextTimers.put((Long) row[1], (Instant) row[0]);
+        }
+        TransactionCallbacks.afterCommit(() -> transitionTimers.scheduleAll(nextTimers));
+        return changed;
+    }
+
+    private int applyTransition(String from, String to, List<DueOrder> orders) {
+        // ✅ Per-row counts: when the timer and the poll race on an order, only the UPDATE that matched announces it
+        int[] counts = jdbcTemplate.batchUpdate("UPDATE orders SET status = ? WHERE id = ? AND status <=> ?",
+                orders, orders.size(), (ps, order) -> {
+                    ps.setString(1, to);
+                    ps.setLong(2, order.id());
+                    ps.setString(3, from);
+                })[0];
+
+        List<DueOrder> moved = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) moved.add(orders.get(i));
+        }
+        TransactionCallbacks.afterCommit(() ->
+                moved.forEach(o -> orderEventHub.publish(o.id(), o.userId(), to)));
+
+        // ✅ Delivered orders stop counting towards their agent's load
+        if ("Delivered".equals(to)) {
+            List<Long> agents = moved.stream().map(DueOrder::agentId).filter(Objects::nonNull).toList();
+            TransactionCallbacks.afterCommit(() -> agents.forEach(deliveryDispatcher::release));
+        }
+        return moved.size();
+    }
+
+    // ✅ Typed columns first; the legacy strings only matter for rows the migration has not reached yet
+    private static DueOrder mapRow(ResultSet rs) throws SQLException {
+        Timestamp orderedAt = rs.getTimestamp("ordered_at", (Calendar) UTC.clone());
+        LocalDate deliveryOn = rs.getObject("delivery_on", LocalDate.class);
+        long agentId = rs.getLong("agent_id");
+        Long agent = rs.wasNull() ? null : agentId;
+        return new DueOrder(rs.getLong("id"),
+                orderedAt != null ? orderedAt.toInstant() : OrderTimeline.parsePlacedOrNull(rs.getString("ordered_time")),
+                deliveryOn != null ? deliveryOn : OrderTimeline.parseDateOrNull(rs.getString("delivery_date")),
+                rs.getString("status"), agent, uuid(rs.getBytes("user_id")));
+    }
+
+    // ✅ users.id is binary(16) on MySQL
+    private static UUID uuid(byte[] bytes) {
+        if (bytes == null || bytes.length != 16) return null;
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    private static void setInstant(PreparedStatement ps, int index, Instant value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.TIMESTAMP);
+        } else {
+            ps.setTimestamp(index, Timestamp.from(value), (Calendar) UTC.clone());
+        }
     }
 }
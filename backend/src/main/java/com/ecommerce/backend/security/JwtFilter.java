@@ -20,6 +20,12 @@ public class JwtFilter extends OncePerRequestFilter {
     @Autowired
     private JwtUtil jwtUtil;
 
+    // ✅ Public media never carries a token worth parsing
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith(request.getContextPath() + "/uploads/");
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
@@ -27,9 +33,15 @@ public class JwtFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
 
         String authHeader = request.getHeader("Authorization");
-
+        String token = null;
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            String token = authHeader.substring(7);
+            token = authHeader.substring(7);
+        } else if (request.getRequestURI().endsWith("/events")) {
+            // ✅ EventSource cannot send headers, so SSE streams may pass the token as ?token=
+            token = request.getParameter("token");
+        }
+
+        if (token != null && !token.isBlank()) {
             try {
                 Claims claims = jwtUtil.validateToken(token);
                 request.setAttribute("claims", claims);
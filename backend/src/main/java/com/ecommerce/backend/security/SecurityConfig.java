@@ -1,5 +1,6 @@
 package com.ecommerce.backend.security;
 
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -33,8 +34,9 @@ public class SecurityConfig {
         CorsConfiguration config = new CorsConfiguration();
         config.setAllowCredentials(true);
         config.setAllowedOriginPatterns(Collections.singletonList("http://localhost:5173")); // ✅ Frontend origin
-        config.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type"));
+        config.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "If-None-Match", "If-Modified-Since", "Idempotency-Key"));
         config.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH"));
+        config.setExposedHeaders(Arrays.asList("X-Next-Cursor", "ETag", "Last-Modified", "Content-Disposition", "Idempotent-Replayed"));
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", config);
@@ -46,15 +48,26 @@ public class SecurityConfig {
         http.csrf(csrf -> csrf.disable())
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        // ✅ Streaming responses finish on an ASYNC dispatch; the original request was already authorized
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
+                        // ✅ Flash-sale toggles, stock holds, stock corrections and upload maintenance need a logged-in user (admin-only ones are checked in the controller)
+                        .requestMatchers("/api/products/*/flash-sale", "/api/products/*/reservations",
+                                "/api/products/reservations/**", "/api/products/*/decrement").authenticated()
+                        .requestMatchers("/api/products/images/gc", "/api/products/images/backfill").authenticated()
+
                         // ✅ Public endpoints
                         .requestMatchers("/api/auth/**", "/api/products/**", "/uploads/**").permitAll()
                         .requestMatchers("/api/users/check-email", "/api/users/check-username").permitAll()
                         .requestMatchers("/api/users").permitAll() // ✅ Allow registration
+                        .requestMatchers("/api/cart/quote").permitAll() // ✅ Only public catalog prices
 
                         // ✅ Protected endpoints
                         .requestMatchers("/api/users/admin").authenticated()
                         .requestMatchers("/api/users/**").authenticated()
                         .requestMatchers("/api/orders/**").authenticated()
+                        .requestMatchers("/api/checkout").authenticated()
+                        .requestMatchers("/api/admin/**").authenticated()
                         .requestMatchers("/users/*/wishlist/**").authenticated()
                         .requestMatchers("/users/*/cart/**").authenticated()
 
@@ -1,17 +1,19 @@
 package com.ecommerce.backend.service;
 
+import com.ecommerce.backend.dto.CartOperationDTO;
+import com.ecommerce.backend.dto.CartProductDTO;
 import com.ecommerce.backend.entity.CartItem;
-import com.ecommerce.backend.entity.Product;
-import com.ecommerce.backend.entity.User;
 import com.ecommerce.backend.repository.CartItemRepository;
 import com.ecommerce.backend.repository.ProductRepository;
-import com.ecommerce.backend.repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.ByteBuffer;
 import java.util.*;
 
 @Service
@@ -19,56 +21,69 @@ public class CartService {
 
     private static final Logger logger = LoggerFactory.getLogger(CartService.class);
 
+    private static final int ADD = 0;
+    private static final int SET = 1;
+    private static final int REMOVE = 2;
+
     @Autowired
     private CartItemRepository cartRepo;
 
     @Autowired
-    private UserRepository userRepo;
+    private JdbcTemplate jdbcTemplate;
 
     @Autowired
     private ProductRepository productRepo;
 
+    @Autowired
+    private CartWriteBehindCache cache;
+
     // ✅ Fetch all cart items for a user
     public List<CartItem> getCartByUser(UUID userId) {
         return cartRepo.findByUserId(userId);
     }
 
-    // ✅ Add product to cart or increment quantity
-    public CartItem addToCart(UUID userId, String productId) {
-        Optional<CartItem> existing = cartRepo.findByUserIdAndProductId(userId, productId);
+    // ✅ Cart as DTOs from one joined query
+    public List<CartProductDTO> getCartView(UUID userId) {
+        if (cache.isEnabled()) return cache.view(userId);
+        return cartRepo.findCartViewByUserId(userId);
+    }
 
-        if (existing.isPresent()) {
-            CartItem item = existing.get();
-            item.setQuantity(item.getQuantity() + 1);
-            CartItem updated = cartRepo.save(item);
-            logger.info("Incremented quantity for product {} in cart of user {}", productId, userId);
-            return updated;
+    /**
+     * Adds one unit of a product to the user's cart in one round trip.
+     * Returns true when a new line was created, false when an existing line
+     * was incremented. Throws IllegalArgumentException for an unknown user or
+     * product (foreign key violation).
+     */
+    public boolean addToCart(UUID userId, String productId) {
+        if (cache.isEnabled()) return cache.add(userId, productId, 1);
+
+        int affected;
+        try {
+            affected = cartRepo.upsertIncrement(UUID.randomUUID(), userId, productId);
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalArgumentException("User or product not found");
         }
 
-        User user = userRepo.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        Product product = productRepo.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found"));
-
-        CartItem newItem = new CartItem();
-        newItem.setUser(user);
-        newItem.setProduct(product);
-        newItem.setQuantity(1);
-        CartItem saved = cartRepo.save(newItem);
-        logger.info("Added product {} to cart for user {}", productId, userId);
-        return saved;
+        // ✅ MySQL reports 1 for an insert and 2 for an ON DUPLICATE KEY update
+        boolean created = affected == 1;
+        logger.info("{} product {} in cart of user {}", created ? "Added" : "Incremented quantity for", productId, userId);
+        return created;
     }
 
     // ✅ Update quantity of a cart item
-    public CartItem updateCartItem(UUID userId, String productId, int quantity) {
-        Optional<CartItem> existing = cartRepo.findByUserIdAndProductId(userId, productId);
-
-        if (existing.isPresent()) {
-            CartItem item = existing.get();
-            item.setQuantity(quantity);
-            CartItem updated = cartRepo.save(item);
-            logger.info("Updated quantity of product {} to {} for user {}", productId, quantity, userId);
-            return updated;
+    public void updateCartItem(UUID userId, String productId, int quantity) {
+        if (cache.isEnabled()) {
+            // ✅ Stepper clicks only touch memory; the flush writes the final quantity once
+            if (cache.set(userId, productId, quantity, false)) return;
+        } else {
+            Optional<CartItem> existing = cartRepo.findByUserIdAndProductId(userId, productId);
+            if (existing.isPresent()) {
+                CartItem item = existing.get();
+                item.setQuantity(quantity);
+                cartRepo.save(item);
+                logger.info("Updated quantity of product {} to {} for user {}", productId, quantity, userId);
+                return;
+            }
         }
 
         throw new RuntimeException("Cart item not found for user " + userId + " and product " + productId);
@@ -77,23 +92,130 @@ public class CartService {
     // ✅ Remove item from cart
     @Transactional
     public void removeFromCart(UUID userId, String productId) {
+        if (cache.isEnabled()) {
+            cache.remove(userId, List.of(productId));
+            return;
+        }
         cartRepo.deleteByUserIdAndProductId(userId, productId);
         logger.info("Removed product {} from cart for user {}", productId, userId);
     }
 
     // ✅ Clear entire cart
     public void clearCart(UUID userId) {
-        List<CartItem> items = cartRepo.findByUserId(userId);
-        cartRepo.deleteAll(items);
-        logger.info("Cleared cart for user {}", userId);
+        if (cache.isEnabled()) {
+            cache.clear(userId);
+            return;
+        }
+        int removed = cartRepo.deleteByUserId(userId);
+        logger.info("Cleared {} lines from cart of user {}", removed, userId);
     }
 
     // ✅ NEW: Remove multiple items from cart
+    public void removeMultipleFromCart(UUID userId, Collection<String> productIds) {
+        if (cache.isEnabled()) {
+            // ✅ Inside checkout this waits for the commit, so a rolled-back order keeps its cart lines
+            List<String> ids = List.copyOf(productIds);
+            TransactionCallbacks.afterCommit(() -> cache.remove(userId, ids));
+            return;
+        }
+        int removed = cartRepo.deleteByUserIdAndProductIdIn(userId, productIds);
+        logger.info("Removed {} of products {} from cart for user {}", removed, productIds, userId);
+    }
+
+    /**
+     * Applies add / set / remove operations in one transaction and returns the
+     * resulting cart. Operations are first folded per product in request order
+     * (e.g. set 2 then add 1 becomes set 3, remove then add 1 becomes set 1),
+     * then written as at most two JDBC batches of upserts and one DELETE.
+     */
     @Transactional
-    public void removeMultipleFromCart(UUID userId, List<String> productIds) {
-        for (String productId : productIds) {
-            cartRepo.deleteByUserIdAndProductId(userId, productId);
-            logger.info("Removed product {} from cart for user {}", productId, userId);
+    public List<CartProductDTO> applyOperations(UUID userId, List<CartOperationDTO> operations) {
+        Map<String, int[]> folded = new LinkedHashMap<>(); // ✅ productId -> {mode, quantity}
+        for (CartOperationDTO operation : operations) {
+            String productId = operation.getProductId();
+            if (productId == null || productId.isBlank() || operation.getOp() == null) {
+                throw new IllegalArgumentException("Every operation needs an op and a productId");
+            }
+            int[] current = folded.get(productId);
+            switch (operation.getOp()) {
+                case "add" -> {
+                    int quantity = operation.getQuantity() != null ? operation.getQuantity() : 1;
+                    if (quantity < 1) throw new IllegalArgumentException("Invalid quantity for " + productId);
+                    if (current == null) folded.put(productId, new int[]{ADD, quantity});
+                    else if (current[0] == REMOVE) folded.put(productId, new int[]{SET, quantity});
+                    else current[1] += quantity;
+                }
+                case "set" -> {
+                    Integer quantity = operation.getQuantity();
+                    if (quantity == null || quantity < 1) throw new IllegalArgumentException("Invalid quantity for " + productId);
+                    folded.put(productId, new int[]{SET, quantity});
+                }
+                case "remove" -> folded.put(productId, new int[]{REMOVE, 0});
+                default -> throw new IllegalArgumentException("Unknown cart operation: " + operation.getOp());
+            }
+        }
+
+        List<Map.Entry<String, int[]>> adds = new ArrayList<>();
+        List<Map.Entry<String, int[]>> sets = new ArrayList<>();
+        List<String> removes = new ArrayList<>();
+        for (Map.Entry<String, int[]> entry : folded.entrySet()) {
+            switch (entry.getValue()[0]) {
+                case ADD -> adds.add(entry);
+                case SET -> sets.add(entry);
+                default -> removes.add(entry.getKey());
+            }
+        }
+
+        if (cache.isEnabled()) {
+            applyToCache(userId, adds, sets, removes);
+            return cache.view(userId);
+        }
+
+        byte[] user = uuidBytes(userId);
+        try {
+            upsert(user, adds, "quantity + VALUES(quantity)");
+            upsert(user, sets, "VALUES(quantity)");
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalArgumentException("User or product not found");
+        }
+        if (!removes.isEmpty()) {
+            cartRepo.deleteByUserIdAndProductIdIn(userId, removes);
+        }
+
+        logger.info("Applied {} cart operations for user {} ({} add, {} set, {} remove)",
+                operations.size(), userId, adds.size(), sets.size(), removes.size());
+        return cartRepo.findCartViewByUserId(userId);
+    }
+
+    private void applyToCache(UUID userId, List<Map.Entry<String, int[]>> adds, List<Map.Entry<String, int[]>> sets,
+                              List<String> removes) {
+        // ✅ Validate every product up front so an unknown id cannot leave the cart half-applied
+        Set<String> wanted = new HashSet<>();
+        adds.forEach(e -> wanted.add(e.getKey()));
+        sets.forEach(e -> wanted.add(e.getKey()));
+        if (!wanted.isEmpty() && productRepo.findExistingIds(wanted).size() != wanted.size()) {
+            throw new IllegalArgumentException("User or product not found");
         }
+        adds.forEach(e -> cache.add(userId, e.getKey(), e.getValue()[1]));
+        sets.forEach(e -> cache.set(userId, e.getKey(), e.getValue()[1], true));
+        if (!removes.isEmpty()) cache.remove(userId, removes);
+    }
+
+    private void upsert(byte[] user, List<Map.Entry<String, int[]>> lines, String onDuplicate) {
+        if (lines.isEmpty()) return;
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO user_cart (id, user_id, product_id, quantity) VALUES (?, ?, ?, ?) " +
+                        "ON DUPLICATE KEY UPDATE quantity = " + onDuplicate,
+                lines, lines.size(), (ps, line) -> {
+                    ps.setBytes(1, uuidBytes(UUID.randomUUID()));
+                    ps.setBytes(2, user);
+                    ps.setString(3, line.getKey());
+                    ps.setInt(4, line.getValue()[1]);
+                });
+    }
+
+    // ✅ UUID columns are binary(16) on MySQL
+    static byte[] uuidBytes(UUID id) {
+        return ByteBuffer.allocate(16).putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits()).array();
     }
 }
@@ -0,0 +1,411 @@
+package com.ecommerce.backend.service;
+
+import com.ecommerce.backend.dto.CartProductDTO;
+import com.ecommerce.backend.repository.CartItemRepository;
+import com.ecommerce.backend.repository.ProductRepository;
+import com.ecommerce.backend.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Optional write-behind mode for carts (cart.write-behind.enabled).
+ *
+ * Each active user's cart is held in a bounded LRU keyed by user id and
+ * mutated in memory; only the touched product ids are marked dirty. Every
+ * cart.write-behind.flush-ms the dirty lines of all carts are written in one
+ * transaction as JDBC batches (clears, deletes, absolute-quantity upserts),
+ * so any number of clicks on a line between two flushes costs one row write.
+ * Carts leaving the LRU, idle carts and everything at shutdown are flushed
+ * before being dropped. Reads come from memory, with the price taken from the
+ * product index when it has the product.
+ *
+ * The cache is per instance, so this mode assumes one node (or sticky users);
+ * a crash loses at most one flush interval of cart edits.
+ */
+@Service
+public class CartWriteBehindCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartWriteBehindCache.class);
+
+    @Value("${cart.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${cart.write-behind.max-users:10000}")
+    private int maxUsers;
+
+    @Value("${cart.write-behind.idle-ms:600000}")
+    private long idleMillis;
+
+    @Autowired
+    private CartItemRepository cartRepo;
+
+    @Autowired
+    private ProductRepository productRepo;
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private static final class CachedCart {
+        final UUID userId;
+        final LinkedHashMap<String, CartProductDTO> lines = new LinkedHashMap<>();
+        final Set<String> dirty = new HashSet<>();
+        boolean cleared;
+        long lastAccess = System.currentTimeMillis();
+        volatile boolean detached; // ✅ dropped from both maps; callers holding it must look the cart up again
+
+        CachedCart(UUID userId) {
+            this.userId = userId;
+        }
+
+        boolean isDirty() {
+            return cleared || !dirty.isEmpty();
+        }
+    }
+
+    // ✅ Writes captured from one cart under its lock; quantity 0 means delete the line
+    private record Pending(CachedCart cart, boolean cleared, Map<String, Integer> lines) {
+    }
+
+    // ✅ Carts pushed out of the LRU with unflushed edits; a returning user picks them up from here
+    private final Map<UUID, CachedCart> evicted = new ConcurrentHashMap<>();
+
+    private final LinkedHashMap<UUID, CachedCart> carts = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, CachedCart> eldest) {
+            if (size() <= maxUsers) return false;
+            evicted.put(eldest.getKey(), eldest.getValue());
+            return true;
+        }
+    };
+
+    private final Object flushLock = new Object();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public List<CartProductDTO> view(UUID userId) {
+        List<CartProductDTO> lines = withCart(userId, cart -> new ArrayList<>(cart.lines.values().stream()
+                .map(line -> new CartProductDTO(line.getId(), line.getTitle(), line.getThumbnail(), line.getDescription(),
+                        line.getPrice(), line.getQuantity(), line.getCategory(), line.getBrand(), line.getUnit()))
+                .toList()));
+        lines.forEach(line -> searchIndex.get(line.getId()).ifPresent(product -> line.setPrice(product.getPrice())));
+        return lines;
+    }
+
+    /**
+     * Adds units of a product, creating the line if needed. Returns true when
+     * a new line was created. Throws IllegalArgumentException for an unknown
+     * user or product.
+     */
+    public boolean add(UUID userId, String productId, int quantity) {
+        boolean present = withCart(userId, cart -> {
+            CartProductDTO line = cart.lines.get(productId);
+            if (line == null) return false;
+            line.setQuantity(line.getQuantity() + quantity);
+            cart.dirty.add(productId);
+            return true;
+        });
+        if (present) return false;
+
+        CartProductDTO fresh = productLine(productId);
+        return withCart(userId, cart -> {
+            CartProductDTO line = cart.lines.putIfAbsent(productId, fresh);
+            if (line != null) line.setQuantity(line.getQuantity() + quantity);
+            else fresh.setQuantity(quantity);
+            cart.dirty.add(productId);
+            return line == null;
+        });
+    }
+
+    // ✅ Absolute quantity; returns false (and changes nothing) when the line is missing and create is false
+    public boolean set(UUID userId, String productId, int quantity, boolean create) {
+        boolean present = withCart(userId, cart -> {
+            CartProductDTO line = cart.lines.get(productId);
+            if (line == null) return false;
+            line.setQuantity(quantity);
+            cart.dirty.add(productId);
+            return true;
+        });
+        if (present) return true;
+        if (!create) return false;
+
+        CartProductDTO fresh = productLine(productId);
+        return withCart(userId, cart -> {
+            cart.lines.putIfAbsent(productId, fresh);
+            cart.lines.get(productId).setQuantity(quantity);
+            cart.dirty.add(productId);
+            return true;
+        });
+    }
+
+    public void remove(UUID userId, Collection<String> productIds) {
+        withCart(userId, cart -> {
+            for (String productId : productIds) {
+                if (cart.lines.remove(productId) != null) cart.dirty.add(productId);
+            }
+            return null;
+        });
+    }
+
+    public void clear(UUID userId) {
+        withCart(userId, cart -> {
+            cart.lines.clear();
+            cart.dirty.clear();
+            cart.cleared = true;
+            return null;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${cart.write-behind.flush-ms:3000}")
+    public void flush() {
+        if (!enabled) return;
+
+        long idleBefore = System.currentTimeMillis() - idleMillis;
+        List<CachedCart> candidates = new ArrayList<>(evicted.values());
+        List<CachedCart> idle = new ArrayList<>();
+        synchronized (carts) {
+            for (CachedCart cart : carts.values()) {
+                candidates.add(cart);
+                if (cart.lastAccess < idleBefore) idle.add(cart);
+            }
+        }
+
+        write(candidates);
+        evicted.values().removeIf(cart -> {
+            synchronized (cart) {
+                if (cart.isDirty()) return false;
+                cart.detached = true;
+                return true;
+            }
+        });
+
+        // ✅ Idle carts leave memory only once clean; the next request reloads them from user_cart
+        synchronized (carts) {
+            for (CachedCart cart : idle) {
+                synchronized (cart) {
+                    if (!cart.isDirty() && cart.lastAccess < idleBefore && carts.remove(cart.userId, cart)) {
+                        cart.detached = true;
+                    }
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void flushAll() {
+        if (!enabled) return;
+        List<CachedCart> all = new ArrayList<>(evicted.values());
+        synchronized (carts) {
+            all.addAll(carts.values());
+        }
+        write(all);
+        logger.info("Cart write-behind flushed on shutdown");
+    }
+
+    private void write(List<CachedCart> candidates) {
+        synchronized (flushLock) {
+            List<Pending> pending = new ArrayList<>();
+            for (CachedCart cart : candidates) {
+                Pending p = drain(cart);
+                if (p != null) pending.add(p);
+            }
+            if (pending.isEmpty()) return;
+
+            try {
+                transactionTemplate.executeWithoutResult(tx -> writeBatches(pending));
+            } catch (RuntimeException e) {
+                // ✅ One bad cart (e.g. a product deleted meanwhile) must not block the rest: retry one by one
+                logger.warn("Cart flush of {} carts failed, retrying per cart: {}", pending.size(), e.getMessage());
+                for (Pending p : pending) {
+                    retry(p);
+                }
+            }
+        }
+    }
+
+    private void retry(Pending p) {
+        try {
+            transactionTemplate.executeWithoutResult(tx -> writeBatches(List.of(p)));
+        } catch (DataIntegrityViolationException rejected) {
+            retryLineByLine(p);
+        } catch (RuntimeException e) {
+            logger.warn("Cart flush for user {} failed, keeping its edits for the next flush: {}", p.cart().userId, e.getMessage());
+            requeue(p.cart(), p.cleared(), p.lines().keySet());
+        }
+    }
+
+    // ✅ Only lines the database refuses outright are dropped; anything else stays dirty for the next flush
+    private void retryLineByLine(Pending p) {
+        CachedCart cart = p.cart();
+        if (p.cleared()) {
+            try {
+                transactionTemplate.executeWithoutResult(tx -> writeBatches(List.of(new Pending(cart, true, Map.of()))));
+            } catch (RuntimeException e) {
+                logger.warn("Cart clear for user {} failed, keeping its edits for the next flush: {}", cart.userId, e.getMessage());
+                requeue(cart, true, p.lines().keySet());
+                return;
+            }
+        }
+
+        List<String> retryLater = new ArrayList<>();
+        List<String> rejected = new ArrayList<>();
+        p.lines().forEach((productId, quantity) -> {
+            try {
+                transactionTemplate.executeWithoutResult(tx ->
+                        writeBatches(List.of(new Pending(cart, false, Map.of(productId, quantity)))));
+            } catch (DataIntegrityViolationException e) {
+                rejected.add(productId);
+            } catch (RuntimeException e) {
+                retryLater.add(productId);
+            }
+        });
+
+        if (!rejected.isEmpty()) {
+            logger.error("Dropping cart lines {} of user {} rejected by the database", rejected, cart.userId);
+        }
+        synchronized (cart) {
+            for (String productId : rejected) {
+                if (!cart.dirty.contains(productId)) cart.lines.remove(productId);
+            }
+        }
+        if (!retryLater.isEmpty()) requeue(cart, false, retryLater);
+    }
+
+    private Pending drain(CachedCart cart) {
+        synchronized (cart) {
+            if (!cart.isDirty()) return null;
+            Map<String, Integer> lines = new LinkedHashMap<>();
+            for (String productId : cart.dirty) {
+                CartProductDTO line = cart.lines.get(productId);
+                lines.put(productId, line != null ? line.getQuantity() : 0);
+            }
+            if (cart.cleared) {
+                // ✅ After a clear, every line still in memory was re-added and must be written
+                cart.lines.forEach((productId, line) -> lines.put(productId, line.getQuantity()));
+            }
+            Pending pending = new Pending(cart, cart.cleared, lines);
+            cart.dirty.clear();
+            cart.cleared = false;
+            return pending;
+        }
+    }
+
+    private void writeBatches(List<Pending> pending) {
+        List<byte[]> clears = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        List<Object[]> upserts = new ArrayList<>();
+        for (Pending p : pending) {
+            byte[] user = CartService.uuidBytes(p.cart().userId);
+            if (p.cleared()) clears.add(user);
+            p.lines().forEach((productId, quantity) -> {
+                if (quantity > 0) upserts.add(new Object[]{CartService.uuidBytes(UUID.randomUUID()), user, productId, quantity});
+                else if (!p.cleared()) deletes.add(new Object[]{user, productId});
+            });
+        }
+
+        if (!clears.isEmpty()) {
+            jdbcTemplate.batchUpdate("DELETE FROM user_cart WHERE user_id = ?", clears, clears.size(),
+                    (ps, user) -> ps.setBytes(1, user));
+        }
+        if (!deletes.isEmpty()) {
+            jdbcTemplate.batchUpdate("DELETE FROM user_cart WHERE user_id = ? AND product_id = ?", deletes, deletes.size(),
+                    (ps, row) -> {
+                        ps.setBytes(1, (byte[]) row[0]);
+                        ps.setString(2, (String) row[1]);
+                    });
+        }
+        if (!upserts.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO user_cart (id, user_id, product_id, quantity) VALUES (?, ?, ?, ?) " +
+                            "ON DUPLICATE KEY UPDATE quantity = VALUES(quantity)", upserts, upserts.size(),
+                    (ps, row) -> {
+                        ps.setBytes(1, (byte[]) row[0]);
+                        ps.setBytes(2, (byte[]) row[1]);
+                        ps.setString(3, (String) row[2]);
+                        ps.setInt(4, (Integer) row[3]);
+                    });
+        }
+    }
+
+    // ✅ Marks drained writes dirty again; drain() re-reads the quantities, so later edits still win
+    private void requeue(CachedCart cart, boolean cleared, Collection<String> productIds) {
+        synchronized (cart) {
+            if (cleared) cart.cleared = true;
+            cart.dirty.addAll(productIds);
+        }
+    }
+
+    // ✅ Runs action under the cart's lock, retrying if the cart was dropped between lookup and lock
+    private <T> T withCart(UUID userId, Function<CachedCart, T> action) {
+        while (true) {
+            CachedCart cart = cart(userId);
+            synchronized (cart) {
+                if (cart.detached) continue;
+                cart.lastAccess = System.currentTimeMillis();
+                return action.apply(cart);
+            }
+        }
+    }
+
+    private CachedCart cart(UUID userId) {
+        synchronized (carts) {
+            CachedCart cart = carts.get(userId);
+            if (cart != null && cart.detached) {
+                carts.remove(userId, cart);
+                cart = null;
+            }
+            if (cart == null) {
+                cart = evicted.get(userId);
+                if (cart != null && !cart.detached) {
+                    carts.put(userId, cart);
+                    return cart;
+                }
+            }
+            if (cart != null) return cart;
+        }
+        return load(userId);
+    }
+
+    // ✅ Cache miss: one joined query; loaded outside the map lock and published only if nobody beat us to it
+    private CachedCart load(UUID userId) {
+        List<CartProductDTO> lines = cartRepo.findCartViewByUserId(userId);
+        if (lines.isEmpty() && !userRepo.existsById(userId)) {
+            throw new IllegalArgumentException("User or product not found");
+        }
+
+        CachedCart loaded = new CachedCart(userId);
+        lines.forEach(line -> loaded.lines.put(line.getId(), line));
+        synchronized (carts) {
+            CachedCart existing = carts.get(userId);
+            if (existing != null && !existing.detached) return existing;
+            carts.put(userId, loaded);
+            return loaded;
+        }
+    }
+
+    private CartProductDTO productLine(String productId) {
+        return productRepo.findCartLine(productId)
+                .orElseThrow(() -> new IllegalArgumentException("User or product not found"));
+    }
+}
@@ -0,0 +1,228 @@
+package com.ecommerce.backend.service;
+
+import com.ecommerce.backend.dto.FacetBucketDTO;
+import com.ecommerce.backend.dto.ProductDTO;
+import com.ecommerce.backend.dto.ProductFacetsDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Columnar copy of the catalog used to answer facet counts.
+ *
+ * Each product gets an ordinal; price and rating live in primitive arrays,
+ * brand and category are dictionary-encoded, and every facet value owns a
+ * BitSet of ordinals. Counting is then AND + cardinality over bitsets.
+ * The snapshot is rebuilt lazily whenever a catalog field it uses has changed
+ * in ProductSearchIndex; stock updates (every sale) do not trigger a rebuild.
+ */
+@Component
+public class CatalogFacetSnapshot {
+
+    // ✅ Price buckets are [min, max); the last one is open-ended
+    private static final double[] PRICE_EDGES = {0, 500, 1000, 5000, 10000};
+
+    // ✅ Matches the "N ★ & Up" buttons on the shop page
+    private static final int[] RATING_FLOORS = {4, 3, 2, 1};
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    private volatile Columns columns = Columns.build(-1, Collections.emptyList());
+
+    public ProductFacetsDTO facets(String search,
+                                   List<String> brands,
+                                   List<String> categories,
+                                   Double priceMin,
+                                   Double priceMax,
+                                   Double ratingMin) {
+        Columns c = current();
+
+        // ✅ One bitset per active filter; a facet ignores its own filter (multi-select semantics)
+        BitSet searchBits = search != null ? c.ordinalsOf(searchIndex.searchIds(search)) : null;
+        BitSet brandBits = union(c.brandBits, c.brandCode, brands);
+        BitSet categoryBits = union(c.categoryBits, c.categoryCode, categories);
+        BitSet priceBits = c.range(c.price, priceMin, priceMax);
+        BitSet ratingBits = c.range(c.rating, ratingMin, null);
+
+        ProductFacetsDTO dto = new ProductFacetsDTO();
+        dto.setTotal(and(c.size, searchBits, brandBits, categoryBits, priceBits, ratingBits).cardinality());
+
+        BitSet forBrands = and(c.size, searchBits, categoryBits, priceBits, ratingBits);
+        dto.setBrands(counts(c.brandDict, c.brandBits, forBrands));
+
+        BitSet forCategories = and(c.size, searchBits, brandBits, priceBits, ratingBits);
+        dto.setCategories(counts(c.categoryDict, c.categoryBits, forCategories));
+
+        BitSet forPrice = and(c.size, searchBits, brandBits, categoryBits, ratingBits);
+        List<FacetBucketDTO> priceBuckets = new ArrayList<>();
+        for (int b = 0; b < PRICE_EDGES.length; b++) {
+            Double min = PRICE_EDGES[b];
+            Double max = b + 1 < PRICE_EDGES.length ? PRICE_EDGES[b + 1] : null;
+            String label = max != null ? format(min) + " - " + format(max) : format(min) + "+";
+            priceBuckets.add(new FacetBucketDTO(label, min, max, intersect(forPrice, c.priceBucketBits[b])));
+        }
+        dto.setPriceBuckets(priceBuckets);
+
+        BitSet forRating = and(c.size, searchBits, brandBits, categoryBits, priceBits);
+        List<FacetBucketDTO> ratingBuckets = new ArrayList<>();
+        for (int b = 0; b < RATING_FLOORS.length; b++) {
+            ratingBuckets.add(new FacetBucketDTO(RATING_FLOORS[b] + " & Up", (double) RATING_FLOORS[b], null,
+                    intersect(forRating, c.ratingBucketBits[b])));
+        }
+        dto.setRatingBuckets(ratingBuckets);
+
+        return dto;
+    }
+
+    private Columns current() {
+        Columns c = columns;
+        long version = searchIndex.catalogModCount();
+        if (c.version == version) return c;
+
+        synchronized (this) {
+            c = columns;
+            if (c.version != version) {
+                c = Columns.build(version, searchIndex.all());
+                columns = c;
+            }
+            return c;
+        }
+    }
+
+    private static BitSet union(BitSet[] bits, Map<String, Integer> code, List<String> values) {
+        if (values == null || values.isEmpty()) return null;
+        BitSet result = new BitSet();
+        for (String value : values) {
+            Integer id = code.get(value);
+            if (id != null) result.or(bits[id]);
+        }
+        return result;
+    }
+
+    // ✅ null means "no filter"; the result is always a fresh bitset
+    private static BitSet and(int size, BitSet... filters) {
+        BitSet result = new BitSet(size);
+        result.set(0, size);
+        for (BitSet filter : filters) {
+            if (filter != null) result.and(filter);
+        }
+        return result;
+    }
+
+    private static int intersect(BitSet base, BitSet facet) {
+        BitSet copy = (BitSet) facet.clone();
+        copy.and(base);
+        return copy.cardinality();
+    }
+
+    private static Map<String, Integer> counts(String[] dict, BitSet[] bits, BitSet base) {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (int i = 0; i < dict.length; i++) {
+            int count = intersect(base, bits[i]);
+            if (count > 0) result.put(dict[i], count);
+        }
+        return result;
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) ? String.valueOf((long) value) : String.valueOf(value);
+    }
+
+    // ✅ Immutable columnar arrays built from one consistent copy of the index
+    private static final class Columns {
+        final long version;
+        final int size;
+        final Map<String, Integer> ordinal = new HashMap<>();
+        final double[] price;
+        final double[] rating;
+        final int[] brandId;
+        final int[] categoryId;
+        final String[] brandDict;
+        final String[] categoryDict;
+        final Map<String, Integer> brandCode;
+        final Map<String, Integer> categoryCode;
+        final BitSet[] brandBits;
+        final BitSet[] categoryBits;
+        final BitSet[] priceBucketBits = new BitSet[PRICE_EDGES.length];
+        final BitSet[] ratingBucketBits = new BitSet[RATING_FLOORS.length];
+
+        private Columns(long version, List<ProductDTO> products) {
+            this.version = version;
+            this.size = products.size();
+            this.price = new double[size];
+            this.rating = new double[size];
+            this.brandId = new int[size];
+            this.categoryId = new int[size];
+
+            Map<String, Integer> brands = new LinkedHashMap<>();
+            Map<String, Integer> categories = new LinkedHashMap<>();
+            for (int i = 0; i < size; i++) {
+                ProductDTO p = products.get(i);
+                ordinal.put(p.getId(), i);
+                price[i] = p.getPrice();
+                rating[i] = p.getRating();
+                brandId[i] = encode(brands, p.getBrand());
+                categoryId[i] = encode(categories, p.getCategory());
+            }
+
+            this.brandCode = brands;
+            this.categoryCode = categories;
+            this.brandDict = brands.keySet().toArray(new String[0]);
+            this.categoryDict = categories.keySet().toArray(new String[0]);
+            this.brandBits = postings(brandId, brandDict.length);
+            this.categoryBits = postings(categoryId, categoryDict.length);
+
+            for (int b = 0; b < PRICE_EDGES.length; b++) {
+                Double max = b + 1 < PRICE_EDGES.length ? PRICE_EDGES[b + 1] : null;
+                BitSet bits = new BitSet(size);
+                for (int i = 0; i < size; i++) {
+                    if (price[i] >= PRICE_EDGES[b] && (max == null || price[i] < max)) bits.set(i);
+                }
+                priceBucketBits[b] = bits;
+            }
+            for (int b = 0; b < RATING_FLOORS.length; b++) {
+                ratingBucketBits[b] = range(rating, (double) RATING_FLOORS[b], null);
+            }
+        }
+
+        static Columns build(long version, List<ProductDTO> products) {
+            return new Columns(version, products);
+        }
+
+        // ✅ Inclusive bounds, same as /filter; null when both bounds are absent
+        BitSet range(double[] column, Double min, Double max) {
+            if (min == null && max == null) return null;
+            BitSet bits = new BitSet(size);
+            for (int i = 0; i < size; i++) {
+                if ((min == null || column[i] >= min) && (max == null || column[i] <= max)) bits.set(i);
+            }
+            return bits;
+        }
+
+        BitSet ordinalsOf(Set<String> ids) {
+            BitSet bits = new BitSet(size);
+            for (String id : ids) {
+                Integer i = ordinal.get(id);
+                if (i != null) bits.set(i);
+            }
+            return bits;
+        }
+
+        // ✅ Missing brand/category values are encoded as -1 and never match a facet
+        private static int encode(Map<String, Integer> dict, String value) {
+            if (value == null) return -1;
+            return dict.computeIfAbsent(value, v -> dict.size());
+        }
+
+        private BitSet[] postings(int[] codes, int cardinality) {
+            BitSet[] bits = new BitSet[cardinality];
+            for (int d = 0; d < cardinality; d++) bits[d] = new BitSet(size);
+            for (int i = 0; i < size; i++) {
+                if (codes[i] >= 0) bits[codes[i]].set(i);
+            }
+            return bits;
+        }
+    }
+}
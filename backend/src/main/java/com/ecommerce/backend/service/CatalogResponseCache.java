@@ -0,0 +1,116 @@
+package com.ecommerce.backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Catalog version plus a cache of already-serialized product listing bodies.
+ *
+ * Product writes call {@link #bump()}. The version drives the ETag and
+ * Last-Modified headers of the listing endpoints, and cached bodies are only
+ * served while their version is still current. Stock-only changes call
+ * {@link #stockChanged()} instead: they are folded into at most one bump per
+ * {@code catalog.cache.stock-refresh-ms}, so a burst of checkouts does not
+ * empty the cache on every decrement. The cache is bounded by the total size
+ * of the stored bodies.
+ */
+@Component
+public class CatalogResponseCache {
+
+    @Value("${catalog.cache.max-bytes:33554432}")
+    private long maxBytes;
+
+    @Value("${catalog.cache.stock-refresh-ms:5000}")
+    private long stockRefreshMs;
+
+    // ✅ Distinguishes versions across restarts so old ETags never match new data
+    private final long epoch = System.currentTimeMillis();
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile long version = 1;
+    private volatile Instant lastModified = Instant.now();
+    private volatile long bumpedAtNanos = System.nanoTime();
+    private volatile boolean stockPending;
+    private long cachedBytes; // guarded by this
+
+    public record Entry(long version, byte[] body, String nextCursor) {
+    }
+
+    public long version() {
+        if (stockPending && System.nanoTime() - bumpedAtNanos >= TimeUnit.MILLISECONDS.toNanos(stockRefreshMs)) {
+            bumpForStock();
+        }
+        return version;
+    }
+
+    public Instant lastModified() {
+        return lastModified;
+    }
+
+    public String etag(long version) {
+        return "\"catalog-" + Long.toString(epoch, 36) + "-" + version + "\"";
+    }
+
+    // ✅ Called after any product write
+    public synchronized void bump() {
+        version++;
+        lastModified = Instant.now();
+        bumpedAtNanos = System.nanoTime();
+        stockPending = false;
+        clear();
+    }
+
+    // ✅ Stock moved but nothing else did; listings pick it up on the next refresh window
+    public void stockChanged() {
+        stockPending = true;
+    }
+
+    // ✅ Used at startup so Last-Modified reflects the newest product row
+    public synchronized void reset(Instant newestChange) {
+        version++;
+        lastModified = newestChange != null ? newestChange : Instant.now();
+        bumpedAtNanos = System.nanoTime();
+        stockPending = false;
+        clear();
+    }
+
+    public Entry get(String key, long version, Supplier<Entry> loader) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.version() == version) {
+            return entry;
+        }
+
+        entry = loader.get();
+        if (version == this.version) {
+            store(key, entry);
+        }
+        return entry;
+    }
+
+    private synchronized void bumpForStock() {
+        if (stockPending) bump();
+    }
+
+    // ✅ A body over 1/16 of the budget is served but not kept, so one huge page cannot evict everything else
+    private synchronized void store(String key, Entry entry) {
+        if (entry.version() != version) return;
+        long size = entry.body().length;
+        if (size > maxBytes / 16) return;
+        if (cachedBytes + size > maxBytes) {
+            clear();
+        }
+        Entry previous = entries.put(key, entry);
+        cachedBytes += size - (previous != null ? previous.body().length : 0);
+    }
+
+    private void clear() {
+        entries.clear();
+        cachedBytes = 0;
+    }
+}
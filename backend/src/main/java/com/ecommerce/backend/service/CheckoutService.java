@@ -0,0 +1,134 @@
+package com.ecommerce.backend.service;
+
+import com.ecommerce.backend.dto.ItemDTO;
+import com.ecommerce.backend.dto.OrderDTO;
+import com.ecommerce.backend.entity.Order;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+/**
+ * Server-side checkout: price check, stock decrement, order insert and cart
+ * cleanup in one transaction, replacing the place / decrement-per-product /
+ * remove-from-cart sequence the client used to drive. Any rejection rolls the
+ * whole checkout back, so stock and cart can no longer drift from the order.
+ * Amounts come from {@link PricingEngine}. A client total that differs from
+ * the quote is rejected rather than overwritten, so the stored order total is
+ * always the amount the buyer was shown.
+ */
+@Service
+public class CheckoutService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CheckoutService.class);
+
+    private static final double PRICE_TOLERANCE = 0.005;
+
+    @Autowired
+    private PricingEngine pricingEngine;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private StockReservationService reservationService;
+
+    public static class CheckoutRejectedException extends RuntimeException {
+        private final List<String> productIds;
+        private final Map<String, Double> currentPrices;
+
+        public CheckoutRejectedException(String message, List<String> productIds, Map<String, Double> currentPrices) {
+            super(message);
+            this.productIds = productIds;
+            this.currentPrices = currentPrices;
+        }
+
+        public List<String> getProductIds() { return productIds; }
+        public Map<String, Double> getCurrentPrices() { return currentPrices; }
+    }
+
+    /**
+     * Places the order for dto.getUserId(), which the controller has already
+     * checked against the caller's token, and returns it. Throws
+     * CheckoutRejectedException for stale prices, missing stock, a bad
+     * reservation or an order that could not be placed, and
+     * IllegalArgumentException for a malformed request.
+     */
+    @Transactional
+    public Order checkout(OrderDTO dto) {
+        if (dto.getUserId() == null || dto.getItems() == null || dto.getItems().isEmpty()) {
+            throw new IllegalArgumentException("Checkout needs a user and at least one item");
+        }
+
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        for (ItemDTO item : dto.getItems()) {
+            if (item.getProductId() == null || item.getQty() < 1) {
+                throw new IllegalArgumentException("Every item needs a product id and a positive quantity");
+            }
+            quantities.merge(item.getProductId(), item.getQty(), Integer::sum);
+        }
+
+        // ✅ Priced from the resident snapshot, no product reads
+        PricingEngine.Quote quote = pricingEngine.quote(quantities);
+        if (!quote.missing().isEmpty()) {
+            throw new CheckoutRejectedException("Product not found", quote.missing(), Map.of());
+        }
+
+        Map<String, Double> changed = new LinkedHashMap<>();
+        for (ItemDTO item : dto.getItems()) {
+            double current = quote.line(item.getProductId()).unitPrice();
+            if (Math.abs(item.getPrice() - current) > PRICE_TOLERANCE) {
+                changed.put(item.getProductId(), current);
+            }
+        }
+        if (!changed.isEmpty()) {
+            throw new CheckoutRejectedException("Price changed", new ArrayList<>(changed.keySet()), changed);
+        }
+        if (Math.abs(dto.getTotal() - quote.total()) > PRICE_TOLERANCE) {
+            throw new CheckoutRejectedException("Total changed", List.of(), Map.of());
+        }
+
+        // ✅ Reservations are checked (owner, expiry, product in the order) and claimed here, once;
+        //    only the units they don't cover are decremented
+        Map<String, Integer> toDecrement = new LinkedHashMap<>(quantities);
+        if (dto.getReservationIds() != null && !dto.getReservationIds().isEmpty()) {
+            List<StockReservationService.Reservation> claimed =
+                    reservationService.claimForOrder(dto.getReservationIds(), dto.getUserId(), quantities);
+            if (claimed == null) {
+                throw new CheckoutRejectedException("Reservation expired or not valid for this order", List.of(), Map.of());
+            }
+            claimed.forEach(r -> toDecrement.merge(r.productId(), -r.quantity(), Integer::sum));
+            toDecrement.values().removeIf(qty -> qty <= 0);
+        }
+        if (!toDecrement.isEmpty()) {
+            List<String> failed = productService.decrementStock(toDecrement);
+            if (!failed.isEmpty()) {
+                throw new CheckoutRejectedException("Insufficient stock", failed, Map.of());
+            }
+        }
+
+        dto.setSubtotal(quote.subtotal());
+        dto.setDiscount(quote.discount());
+        dto.setShipping(quote.shipping());
+        dto.setTax(quote.tax());
+        dto.setTotal(quote.total());
+
+        Order order = orderService.saveClaimedOrder(dto);
+        if (order == null) {
+            throw new CheckoutRejectedException("Order could not be placed", List.of(), Map.of());
+        }
+
+        cartService.removeMultipleFromCart(dto.getUserId(), quantities.keySet());
+        logger.info("Checkout placed order {} for user {}", order.getId(), dto.getUserId());
+        return order;
+    }
+}
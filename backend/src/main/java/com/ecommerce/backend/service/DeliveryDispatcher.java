@@ -0,0 +1,201 @@
+package com.ecommerce.backend.service;
+
+import com.ecommerce.backend.entity.DeliveryAgent;
+import com.ecommerce.backend.repository.DeliveryAgentRepository;
+import com.ecommerce.backend.repository.OrderRepository;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Assigns delivery agents to new orders by current load.
+ *
+ * The roster and each agent's count of active (not Delivered, not Cancelled)
+ * orders are kept in memory, ordered by (load, agentId), so picking the
+ * least-loaded agent is O(log n) with no DB read. Counts move on assign and
+ * release and are re-synced from the orders table periodically to absorb any
+ * drift (status changes made outside this service, restarts, rollbacks).
+ */
+@Service
+public class DeliveryDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeliveryDispatcher.class);
+
+    @Autowired
+    private DeliveryAgentRepository deliveryAgentRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private record Slot(long agentId, int load) {
+    }
+
+    private static final Comparator<Slot> BY_LOAD =
+            Comparator.comparingInt(Slot::load).thenComparingLong(Slot::agentId);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final TreeSet<Slot> queue = new TreeSet<>(BY_LOAD);
+    private final Map<Long, Slot> slots = new HashMap<>();
+    private Map<Long, DeliveryAgent> roster = Map.of();
+
+    // ✅ Bumped once per committed roster change; a resync covers every generation it saw before reading
+    private final AtomicLong rosterGeneration = new AtomicLong();
+    private final Object resyncLock = new Object();
+    private long syncedGeneration; // guarded by resyncLock
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        resync();
+    }
+
+    // ✅ Least-loaded agent, or null when no agents exist
+    public Long assign() {
+        lock.lock();
+        try {
+            Slot slot = queue.pollFirst();
+            if (slot == null) return null;
+            put(new Slot(slot.agentId(), slot.load() + 1));
+            return slot.agentId();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ✅ An order left the active set (delivered, cancelled or rolled back)
+    public void release(Long agentId) {
+        if (agentId == null) return;
+        lock.lock();
+        try {
+            Slot slot = slots.get(agentId);
+            if (slot == null || slot.load() == 0) return;
+            queue.remove(slot);
+            put(new Slot(agentId, slot.load() - 1));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reloads the roster and recomputes every agent's load with one grouped
+     * count over active orders.
+     */
+    @Scheduled(fixedDelayString = "${delivery.dispatch.resync-interval-ms:300000}",
+            initialDelayString = "${delivery.dispatch.resync-interval-ms:300000}")
+    public void resync() {
+        // ✅ Serialized so an older snapshot can never replace a newer one
+        synchronized (resyncLock) {
+            long generation = rosterGeneration.get();
+            List<DeliveryAgent> agents = deliveryAgentRepository.findAll();
+            Map<Long, Long> active = new HashMap<>();
+            for (Object[] row : orderRepository.countActiveByAgent(OrderTimeline.TERMINAL_STATUSES)) {
+                active.put((Long) row[0], (Long) row[1]);
+            }
+
+            Map<Long, DeliveryAgent> newRoster = new LinkedHashMap<>();
+            agents.forEach(agent -> newRoster.put(agent.getId(), agent));
+
+            lock.lock();
+            try {
+                queue.clear();
+                slots.clear();
+                for (Long agentId : newRoster.keySet()) {
+                    put(new Slot(agentId, active.getOrDefault(agentId, 0L).intValue()));
+                }
+                roster = Collections.unmodifiableMap(newRoster);
+            } finally {
+                lock.unlock();
+            }
+            syncedGeneration = generation;
+            logger.info("Delivery dispatcher synced {} agents", newRoster.size());
+        }
+    }
+
+    // ✅ One resync per writing transaction, after it commits; concurrent transactions each get theirs
+    public void rosterChanged() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            rosterCommitted();
+            return;
+        }
+        // ✅ The synchronization list is per transaction (a suspended outer one keeps its own)
+        for (TransactionSynchronization registered : TransactionSynchronizationManager.getSynchronizations()) {
+            if (registered instanceof RosterResync) return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new RosterResync());
+    }
+
+    private final class RosterResync implements TransactionSynchronization {
+        @Override
+        public void afterCommit() {
+            rosterCommitted();
+        }
+    }
+
+    // ✅ Skipped only if a resync that started after this commit has already finished
+    private void rosterCommitted() {
+        long generation = rosterGeneration.incrementAndGet();
+        synchronized (resyncLock) {
+            if (syncedGeneration >= generation) return;
+            resync();
+        }
+    }
+
+    public List<Map<String, Object>> loads() {
+        List<Slot> snapshot;
+        Map<Long, DeliveryAgent> agents;
+        lock.lock();
+        try {
+            snapshot = new ArrayList<>(queue);
+            agents = roster;
+        } finally {
+            lock.unlock();
+        }
+
+        List<Map<String, Object>> loads = new ArrayList<>();
+        for (Slot slot : snapshot) {
+            DeliveryAgent agent = agents.get(slot.agentId());
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("agentId", slot.agentId());
+            entry.put("name", agent != null ? agent.getName() : null);
+            entry.put("activeOrders", slot.load());
+            loads.add(entry);
+        }
+        return loads;
+    }
+
+    private void put(Slot slot) {
+        slots.put(slot.agentId(), slot);
+        queue.add(slot);
+    }
+
+    /**
+     * JPA callbacks on {@link DeliveryAgent}: any roster change triggers a
+     * resync once the writing transaction commits.
+     */
+    public static class RosterListener {
+
+        @Autowired
+        @Lazy
+        private DeliveryDispatcher dispatcher;
+
+        @PostPersist
+        @PostUpdate
+        @PostRemove
+        public void rosterChanged(DeliveryAgent agent) {
+            if (dispatcher != null) dispatcher.rosterChanged();
+        }
+    }
+}
@@ -1,44 +1,230 @@
 package com.ecommerce.backend.service;
 
+import com.ecommerce.backend.repository.ProductRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import jakarta.annotation.PostConstruct;
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Paths;
-import java.util.UUID;
+import java.io.InputStream;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Stream;
 
+/**
+ * Content-addressed upload store.
+ *
+ * Uploads are hashed (SHA-256) while they stream to a temp file and stored as
+ * {@code ab/cd/<hash>.<ext>}, so identical images share one blob. Blobs are
+ * reference-counted by {@code Product.thumbnail}; a background sweep removes
+ * unreferenced blobs (with their variants and .br/.gz siblings) once they are older than the grace
+ * period, which also covers uploads whose product save failed. Dedup hits and
+ * GC deletes are serialized, and each delete re-checks the blob's age, so a
+ * blob reused after the sweep's scan is never removed.
+ */
 @Service
 public class FileService {
 
     private static final Logger logger = LoggerFactory.getLogger(FileService.class);
+    private static final HexFormat HEX = HexFormat.of();
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ImageVariantService imageVariantService;
 
     @Value("${file.upload-dir}")
     private String uploadDirConfig;
 
-    private String uploadDir;
+    @Value("${file.gc.grace-minutes:60}")
+    private long graceMinutes;
+
+    private Path uploadDir;
+
+    // ✅ Held while a dedup hit touches a blob and while the GC re-checks and deletes one
+    private final Object blobLock = new Object();
 
     @PostConstruct
     public void init() {
-        this.uploadDir = Paths.get(uploadDirConfig).toAbsolutePath().toString() + "/";
+        this.uploadDir = Paths.get(uploadDirConfig).toAbsolutePath().normalize();
     }
 
     public String save(MultipartFile file) throws IOException {
-        File dir = new File(uploadDir);
-        if (!dir.exists()) {
-            boolean created = dir.mkdirs();
-            logger.info("Created uploads directory: {}", created);
+        if (!Files.isDirectory(uploadDir)) {
+            Files.createDirectories(uploadDir);
+            logger.info("Created uploads directory: {}", uploadDir);
+        }
+
+        MessageDigest digest = sha256();
+        Path tmp = Files.createTempFile(uploadDir, "upload-", ".tmp");
+        try {
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            String hash = HEX.formatHex(digest.digest());
+            String filename = hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash + extension(file.getOriginalFilename());
+            Path dest = uploadDir.resolve(filename);
+
+            synchronized (blobLock) {
+                if (Files.exists(dest)) {
+                    // ✅ Duplicate content: keep the existing blob and restart its GC grace period
+                    Files.setLastModifiedTime(dest, FileTime.from(Instant.now()));
+                    logger.info("Upload deduplicated to existing blob: {}", filename);
+                } else {
+                    try {
+                        moveIntoShard(tmp, dest);
+                    } catch (FileAlreadyExistsException e) {
+                        logger.info("Concurrent upload stored the same blob: {}", filename);
+                    }
+                    logger.info("Saved upload to: {}", dest);
+                }
+            }
+            return filename;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Deletes upload files no product references any more. Only originals are
+     * candidates: their variants and precompressed siblings are deleted with
+     * them, under the same lock and after the same age re-check, so a derived
+     * file never outlives or predeceases its original. Files younger than the
+     * grace period are left alone so in-flight uploads are never collected.
+     */
+    @Scheduled(fixedDelayString = "${file.gc.interval-ms:3600000}", initialDelayString = "${file.gc.initial-delay-ms:300000}")
+    public int collectGarbage() {
+        if (!Files.isDirectory(uploadDir)) return 0;
+
+        Set<String> referencedBases = new HashSet<>();
+        for (Object[] row : productRepository.countThumbnailReferences()) {
+            String thumbnail = (String) row[0];
+            if (!thumbnail.isBlank() && !thumbnail.startsWith("http")) {
+                referencedBases.add(imageVariantService.baseOf(thumbnail));
+            }
+        }
+
+        Instant cutoff = Instant.now().minus(Duration.ofMinutes(graceMinutes));
+        List<Path> orphans = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(uploadDir)) {
+            files.filter(Files::isRegularFile).forEach(file -> {
+                String name = uploadDir.relativize(file).toString().replace('\\', '/');
+                if (isDerived(file, name)) return;
+                if (!name.endsWith(".tmp") && referencedBases.contains(imageVariantService.baseOf(name))) return;
+                try {
+                    if (Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) orphans.add(file);
+                } catch (IOException e) {
+                    logger.warn("Failed to stat upload {}", name);
+                }
+            });
+        } catch (IOException e) {
+            logger.error("Failed to scan uploads for garbage collection", e);
+            return 0;
+        }
+
+        int deleted = 0;
+        for (Path orphan : orphans) {
+            String name = uploadDir.relativize(orphan).toString().replace('\\', '/');
+            synchronized (blobLock) {
+                try {
+                    // ✅ A dedup hit since the scan restarted the grace period: the blob is in use again
+                    if (!Files.getLastModifiedTime(orphan).toInstant().isBefore(cutoff)) continue;
+                    // ✅ Derived files first, so a failure part way leaves the original for the next sweep
+                    deleted += deleteDerived(orphan, name);
+                    if (Files.deleteIfExists(orphan)) deleted++;
+                    pruneEmptyShards(orphan.getParent());
+                } catch (NoSuchFileException e) {
+                    // Already gone
+                } catch (IOException e) {
+                    logger.warn("Failed to delete orphaned upload {}", name);
+                }
+            }
+        }
+        if (deleted > 0) {
+            logger.info("Upload GC removed {} unreferenced files", deleted);
+        }
+        return deleted;
+    }
+
+    // ✅ Variants, and .br/.gz siblings whose original is still there; a sibling without one is an orphan itself
+    private boolean isDerived(Path file, String name) {
+        if (imageVariantService.isVariant(name)) return true;
+        String original = stripEncodingSuffix(name);
+        return !original.equals(name) && Files.exists(uploadDir.resolve(original));
+    }
+
+    // ✅ Caller holds blobLock; also clears the original's entry in the variant index
+    private int deleteDerived(Path original, String name) throws IOException {
+        int deleted = deleteEncodedSiblings(original);
+        if (name.endsWith(".tmp")) return deleted;
+        for (String variant : imageVariantService.deleteVariants(name)) {
+            deleted += 1 + deleteEncodedSiblings(uploadDir.resolve(variant));
+        }
+        return deleted;
+    }
+
+    private static int deleteEncodedSiblings(Path file) throws IOException {
+        int deleted = 0;
+        for (String suffix : List.of(".br", ".gz")) {
+            if (Files.deleteIfExists(file.resolveSibling(file.getFileName() + suffix))) deleted++;
+        }
+        return deleted;
+    }
+
+    // ✅ Retries once if the GC pruned the (empty) shard directory in between
+    private static void moveIntoShard(Path tmp, Path dest) throws IOException {
+        Files.createDirectories(dest.getParent());
+        try {
+            Files.move(tmp, dest, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            Files.createDirectories(dest.getParent());
+            Files.move(tmp, dest, StandardCopyOption.ATOMIC_MOVE);
         }
+    }
 
-        String filename = UUID.randomUUID() + "_" + file.getOriginalFilename();
-        File dest = new File(uploadDir + filename);
-        logger.info("Saving file to: {}", dest.getAbsolutePath());
+    // ✅ Removes ab/cd shard directories left empty, never the upload root itself
+    private void pruneEmptyShards(Path dir) throws IOException {
+        while (dir != null && dir.startsWith(uploadDir) && !dir.equals(uploadDir)) {
+            try (Stream<Path> entries = Files.list(dir)) {
+                if (entries.findAny().isPresent()) return;
+            }
+            Files.deleteIfExists(dir);
+            dir = dir.getParent();
+        }
+    }
 
-        file.transferTo(dest);
-        return filename;
+    private static String stripEncodingSuffix(String name) {
+        if (name.endsWith(".br")) return name.substring(0, name.length() - 3);
+        if (name.endsWith(".gz")) return name.substring(0, name.length() - 3);
+        return name;
+    }
+
+    private static String extension(String originalFilename) {
+        if (originalFilename == null) return "";
+        int dot = originalFilename.lastIndexOf('.');
+        if (dot < 0) return "";
+        String ext = originalFilename.substring(dot + 1).toLowerCase(Locale.ROOT);
+        return ext.matches("[a-z0-9]{1,5}") ? "." + ext : "";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
 }
@@ -0,0 +1,175 @@
+package com.ecommerce.backend.service;
+
+import com.ecommerce.backend.entity.IdempotencyKey;
+import com.ecommerce.backend.entity.Order;
+import com.ecommerce.backend.repository.IdempotencyKeyRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates order placement by Idempotency-Key.
+ *
+ * A bounded LRU maps recent keys to the future of their order id: the first
+ * request for a key owns the future, concurrent duplicates on this node wait
+ * on it, and later retries are answered from it without touching the DB.
+ * A miss falls back to the idempotency_keys table. The key row is inserted
+ * first in the order's own transaction, so a duplicate on another node blocks
+ * on the primary key until the first commits and then fails instead of
+ * inserting a second order.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    public static final int MAX_KEY_LENGTH = 100;
+
+    public record Result(Long orderId, boolean replayed) {
+    }
+
+    private record Entry(UUID userId, CompletableFuture<Long> orderId) {
+    }
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${idempotency.cache-size:10000}")
+    private int cacheSize;
+
+    @Value("${idempotency.wait-ms:30000}")
+    private long waitMillis;
+
+    @Value("${idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    private final Map<String, Entry> recent = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > cacheSize && eldest.getValue().orderId().isDone();
+        }
+    };
+
+    /**
+     * Runs placeOrder at most once per key. Returns null when placeOrder
+     * returned null (nothing is recorded, so the key may be retried).
+     */
+    public Result placeOnce(String key, UUID userId, Supplier<Order> placeOrder) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be 1-" + MAX_KEY_LENGTH + " characters");
+        }
+
+        Entry mine = new Entry(userId, new CompletableFuture<>());
+        Entry existing;
+        synchronized (recent) {
+            existing = recent.putIfAbsent(key, mine);
+        }
+        if (existing != null) {
+            checkOwner(existing.userId(), userId);
+            Long orderId = await(existing.orderId());
+            return orderId != null ? new Result(orderId, true) : null;
+        }
+
+        try {
+            Result result = placeAndRecord(key, userId, placeOrder);
+            mine.orderId().complete(result != null ? result.orderId() : null);
+            if (result == null) forget(key, mine);
+            return result;
+        } catch (RuntimeException e) {
+            mine.orderId().completeExceptionally(e);
+            forget(key, mine);
+            throw e;
+        }
+    }
+
+    private Result placeAndRecord(String key, UUID userId, Supplier<Order> placeOrder) {
+        Optional<IdempotencyKey> stored = idempotencyKeyRepository.findById(key);
+        if (stored.isPresent()) return replay(stored.get(), userId);
+
+        try {
+            Long orderId = transactionTemplate.execute(tx -> {
+                // ✅ Key row first: a concurrent duplicate elsewhere waits on this primary key, not on a second order
+                IdempotencyKey row = new IdempotencyKey();
+                row.setKey(key);
+                row.setUserId(userId);
+                row.setCreatedAt(Instant.now());
+                entityManager.persist(row);
+                entityManager.flush();
+
+                Order order = placeOrder.get();
+                if (order == null) {
+                    tx.setRollbackOnly();
+                    return null;
+                }
+                row.setOrderId(order.getId());
+                return order.getId();
+            });
+            return orderId != null ? new Result(orderId, false) : null;
+        } catch (RuntimeException e) {
+            // ✅ Lost the race to another node: its committed row holds the order
+            Optional<IdempotencyKey> winner = idempotencyKeyRepository.findById(key);
+            if (winner.isPresent() && winner.get().getOrderId() != null) return replay(winner.get(), userId);
+            throw e;
+        }
+    }
+
+    private Result replay(IdempotencyKey stored, UUID userId) {
+        checkOwner(stored.getUserId(), userId);
+        return new Result(stored.getOrderId(), true);
+    }
+
+    private static void checkOwner(UUID owner, UUID userId) {
+        if (!Objects.equals(owner, userId)) {
+            throw new IllegalStateException("Idempotency-Key was already used by another user");
+        }
+    }
+
+    private Long await(CompletableFuture<Long> orderId) {
+        try {
+            return orderId.get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("A request with this Idempotency-Key is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the original request");
+        }
+    }
+
+    private void forget(String key, Entry entry) {
+        synchronized (recent) {
+            recent.remove(key, entry);
+        }
+    }
+
+    @Scheduled(fixedRateString = "${idempotency.purge-interval-ms:3600000}", initialDelay = 600000)
+    public void purgeExpired() {
+        int removed = idempotencyKeyRepository.deleteCreatedBefore(Instant.now().minus(Duration.ofHours(ttlHours)));
+        if (removed > 0) {
+            logger.info("Purged {} expired idempotency keys", removed);
+        }
+    }
+}
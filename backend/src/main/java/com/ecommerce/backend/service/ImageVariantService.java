@@ -0,0 +1,290 @@
+package com.ecommerce.backend.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Generates fixed-width thumbnail variants next to each uploaded image.
+ *
+ * Work runs on a small bounded executor: the upload request only enqueues,
+ * a full queue rejects (and counts) instead of piling up memory, and the
+ * backfill walks existing uploads while respecting that bound.
+ */
+@Service
+public class ImageVariantService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageVariantService.class);
+    private static final Pattern VARIANT_NAME = Pattern.compile("^(.+)_w(\\d+)\\.([A-Za-z0-9]+)$");
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${file.upload-dir}")
+    private String uploadDirConfig;
+
+    @Value("${image.variants.widths:160,320,640}")
+    private List<Integer> widths;
+
+    @Value("${image.variants.threads:2}")
+    private int threads;
+
+    @Value("${image.variants.queue-capacity:100}")
+    private int queueCapacity;
+
+    private Path uploadDir;
+    private ThreadPoolExecutor executor;
+
+    // ✅ original filename -> width -> variant filename (only variants that exist on disk)
+    private final Map<String, NavigableMap<Integer, String>> ready = new ConcurrentHashMap<>();
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public record VariantsReadyEvent(String filename) {
+    }
+
+    @PostConstruct
+    public void init() {
+        uploadDir = Paths.get(uploadDirConfig).toAbsolutePath();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-variants");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        scanExistingVariants();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public boolean isVariant(String filename) {
+        return VARIANT_NAME.matcher(fileName(filename)).matches();
+    }
+
+    // ✅ Path without extension shared by an original and all of its variants
+    public String baseOf(String filename) {
+        Matcher m = VARIANT_NAME.matcher(filename);
+        if (m.matches()) return m.group(1);
+        int dot = filename.lastIndexOf('.');
+        return dot > filename.lastIndexOf('/') ? filename.substring(0, dot) : filename;
+    }
+
+    public Map<Integer, String> variantsFor(String filename) {
+        NavigableMap<Integer, String> variants = ready.get(filename);
+        return variants != null ? variants : Collections.emptyMap();
+    }
+
+    // ✅ Non-blocking: returns false when the pipeline is saturated
+    public boolean submit(String filename) {
+        if (filename == null || filename.isBlank() || isVariant(filename)) return false;
+        if (ready.containsKey(filename)) return true; // deduplicated upload, variants already exist
+        try {
+            executor.execute(() -> generate(filename));
+            return true;
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            logger.warn("Image variant queue full, skipped {}", filename);
+            return false;
+        }
+    }
+
+    // ✅ Queues every upload that is missing variants, waiting for room instead of dropping work
+    public int backfill() {
+        List<String> pending = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(uploadDir)) {
+            files.filter(Files::isRegularFile)
+                    .map(p -> uploadDir.relativize(p).toString().replace('\\', '/'))
+                    .filter(name -> !name.endsWith(".tmp") && !isVariant(name) && !ready.containsKey(name))
+                    .forEach(pending::add);
+        } catch (IOException e) {
+            logger.error("Failed to list uploads for backfill", e);
+            return 0;
+        }
+
+        Thread worker = new Thread(() -> {
+            for (String filename : pending) {
+                while (executor.getQueue().remainingCapacity() == 0 && !executor.isShutdown()) {
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                submit(filename);
+            }
+            logger.info("Image variant backfill queued {} uploads", pending.size());
+        }, "image-variants-backfill");
+        worker.setDaemon(true);
+        worker.start();
+        return pending.size();
+    }
+
+    // ✅ Forgets the original's variants and deletes their files; returns the names that were deleted
+    public List<String> deleteVariants(String filename) {
+        NavigableMap<Integer, String> variants = ready.remove(filename);
+        if (variants == null) return List.of();
+        List<String> deleted = new ArrayList<>();
+        for (String variant : variants.values()) {
+            try {
+                if (Files.deleteIfExists(uploadDir.resolve(variant))) deleted.add(variant);
+            } catch (IOException e) {
+                logger.warn("Failed to delete image variant {}", variant);
+            }
+        }
+        return deleted;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queued", executor.getQueue().size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("active", executor.getActiveCount());
+        stats.put("threads", threads);
+        stats.put("completed", completed.get());
+        stats.put("failed", failed.get());
+        stats.put("rejected", rejected.get());
+        stats.put("imagesWithVariants", ready.size());
+        return stats;
+    }
+
+    // ✅ Decode once, then cascade largest -> smallest so each variant starts from the next larger one
+    private void generate(String filename) {
+        Path source = uploadDir.resolve(filename).normalize();
+        try {
+            if (!source.startsWith(uploadDir) || !Files.isRegularFile(source)) return;
+
+            BufferedImage image = ImageIO.read(source.toFile());
+            if (image == null) {
+                logger.info("Skipping variants for unsupported image {}", filename);
+                return;
+            }
+
+            String format = outputFormat(filename);
+            NavigableMap<Integer, String> variants = new TreeMap<>();
+            BufferedImage current = image;
+            for (int width : new TreeSet<>(widths).descendingSet()) {
+                if (width >= image.getWidth()) continue; // never upscale
+
+                current = scale(current, width, format.equals("png"));
+                String variantName = variantName(filename, width, format);
+                Path target = uploadDir.resolve(variantName);
+                Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+                ImageIO.write(current, format, tmp.toFile());
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                variants.put(width, variantName);
+            }
+
+            if (!variants.isEmpty()) {
+                ready.put(filename, variants);
+                eventPublisher.publishEvent(new VariantsReadyEvent(filename));
+            }
+            completed.incrementAndGet();
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            logger.error("Failed to generate variants for {}", filename, e);
+        }
+    }
+
+    /**
+     * Bilinear filtering only looks at the 2x2 source pixels around each target
+     * pixel, so a single step of more than 2x skips most of the source and
+     * aliases. Halving until the last step is at most 2x keeps every source
+     * pixel contributing, like an area average.
+     */
+    private static BufferedImage scale(BufferedImage src, int width, boolean keepAlpha) {
+        int height = Math.max(1, (int) Math.round((double) src.getHeight() * width / src.getWidth()));
+        BufferedImage current = src;
+        while (current.getWidth() / 2 >= width) {
+            current = draw(current, current.getWidth() / 2, Math.max(height, current.getHeight() / 2), keepAlpha);
+        }
+        return current.getWidth() == width ? current : draw(current, width, height, keepAlpha);
+    }
+
+    private static BufferedImage draw(BufferedImage src, int width, int height, boolean keepAlpha) {
+        BufferedImage out = new BufferedImage(width, height, keepAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = out.createGraphics();
+        try {
+            if (!keepAlpha) {
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, width, height);
+            }
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(src, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return out;
+    }
+
+    // ✅ One directory walk: originals are matched to variants by their name without extension
+    private void scanExistingVariants() {
+        if (!Files.isDirectory(uploadDir)) return;
+
+        List<String> names;
+        try (Stream<Path> files = Files.walk(uploadDir)) {
+            names = files.filter(Files::isRegularFile)
+                    .map(p -> uploadDir.relativize(p).toString().replace('\\', '/'))
+                    .toList();
+        } catch (IOException e) {
+            logger.warn("Failed to scan existing image variants", e);
+            return;
+        }
+
+        Map<String, String> originalsByBase = new HashMap<>();
+        for (String name : names) {
+            int dot = name.lastIndexOf('.');
+            if (!isVariant(name) && dot > name.lastIndexOf('/')) {
+                originalsByBase.put(name.substring(0, dot), name);
+            }
+        }
+        for (String name : names) {
+            Matcher m = VARIANT_NAME.matcher(name);
+            if (!m.matches()) continue;
+            String original = originalsByBase.get(m.group(1));
+            if (original != null) {
+                ready.computeIfAbsent(original, k -> new TreeMap<>()).put(Integer.parseInt(m.group(2)), name);
+            }
+        }
+    }
+
+    static String variantName(String filename, int width, String format) {
+        int dot = filename.lastIndexOf('.');
+        String base = dot > filename.lastIndexOf('/') ? filename.substring(0, dot) : filename;
+        return base + "_w" + width + "." + (format.equals("png") ? "png" : "jpg");
+    }
+
+    private static String outputFormat(String filename) {
+        return filename.toLowerCase().endsWith(".png") ? "png" : "jpg";
+    }
+
+    private static String fileName(String path) {
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+}
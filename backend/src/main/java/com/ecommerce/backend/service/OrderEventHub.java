@@ -0,0 +1,260 @@
+package com.ecommerce.backend.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process registry of Server-Sent Event subscribers for order status.
+ *
+ * Subscribers are indexed by order id and by user id, so a transition reaches
+ * exactly the streams watching it. An idle subscriber is just an open async
+ * request plus an empty queue; no thread is held. Each subscriber has a small
+ * bounded queue drained by a shared sender pool, so a slow client never
+ * blocks the publisher; when its queue is full the oldest event is dropped
+ * (the newest status is what a tracker needs). Heartbeat comments keep
+ * proxies from closing idle streams and flush out dead connections.
+ *
+ * Sends are blocking servlet writes, so a client that stops reading holds its
+ * sender thread until the container's write timeout. A subscriber drains on at
+ * most one thread at a time and the pool grows on demand up to its limit, so
+ * a stalled stream only costs one thread. The heartbeat also detaches any
+ * subscriber whose send has been stuck past orders.events.send-timeout-ms, so
+ * no further events are queued for it.
+ */
+@Service
+public class OrderEventHub {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderEventHub.class);
+
+    @Value("${orders.events.buffer:16}")
+    private int bufferSize;
+
+    @Value("${orders.events.timeout-ms:1800000}")
+    private long timeoutMillis;
+
+    @Value("${orders.events.sender-threads:16}")
+    private int senderThreads;
+
+    @Value("${orders.events.send-timeout-ms:10000}")
+    private long sendTimeoutMillis;
+
+    public record StatusEvent(Long orderId, String status, String at) {
+    }
+
+    private final Map<Long, Set<Subscriber>> byOrder = new ConcurrentHashMap<>();
+    private final Map<UUID, Set<Subscriber>> byUser = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong stalled = new AtomicLong();
+
+    private ExecutorService senders;
+
+    @PostConstruct
+    public void init() {
+        // ✅ Threads start on demand up to the limit and retire when idle
+        AtomicLong threadIds = new AtomicLong();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(senderThreads, senderThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "order-events-" + threadIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        pool.allowCoreThreadTimeOut(true);
+        senders = pool;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+        byOrder.values().forEach(set -> set.forEach(Subscriber::close));
+        byUser.values().forEach(set -> set.forEach(Subscriber::close));
+    }
+
+    // ✅ initial (may be null) is sent first so the client never has to fetch the current status separately
+    public SseEmitter subscribeOrder(Long orderId, StatusEvent initial) {
+        Subscriber subscriber = register(byOrder, orderId);
+        if (initial != null) subscriber.offer(event(initial));
+        return subscriber.emitter;
+    }
+
+    public SseEmitter subscribeUser(UUID userId) {
+        return register(byUser, userId).emitter;
+    }
+
+    public void publish(Long orderId, UUID userId, String status) {
+        Set<Subscriber> orderSubscribers = byOrder.get(orderId);
+        Set<Subscriber> userSubscribers = userId != null ? byUser.get(userId) : null;
+        if (orderSubscribers == null && userSubscribers == null) return;
+
+        Set<ResponseBodyEmitter.DataWithMediaType> event = event(new StatusEvent(orderId, status, Instant.now().toString()));
+        if (orderSubscribers != null) orderSubscribers.forEach(s -> s.offer(event));
+        if (userSubscribers != null) userSubscribers.forEach(s -> s.offer(event));
+    }
+
+    public Map<String, Long> stats() {
+        return Map.of(
+                "orderStreams", byOrder.values().stream().mapToLong(Set::size).sum(),
+                "userStreams", byUser.values().stream().mapToLong(Set::size).sum(),
+                "dropped", dropped.get(),
+                "stalled", stalled.get());
+    }
+
+    @Scheduled(fixedRateString = "${orders.events.heartbeat-ms:20000}")
+    public void heartbeat() {
+        Set<ResponseBodyEmitter.DataWithMediaType> ping = SseEmitter.event().comment("ping").build();
+        long stuckBefore = System.currentTimeMillis() - sendTimeoutMillis;
+        byOrder.values().forEach(set -> set.forEach(s -> s.heartbeat(ping, stuckBefore)));
+        byUser.values().forEach(set -> set.forEach(s -> s.heartbeat(ping, stuckBefore)));
+    }
+
+    private <K> Subscriber register(Map<K, Set<Subscriber>> index, K key) {
+        Subscriber subscriber = new Subscriber(new SseEmitter(timeoutMillis));
+        // ✅ Added inside compute so it cannot land in a set that onClose just dropped from the map
+        index.compute(key, (k, set) -> {
+            Set<Subscriber> subscribers = set != null ? set : ConcurrentHashMap.newKeySet();
+            subscribers.add(subscriber);
+            return subscribers;
+        });
+        subscriber.onClose = () -> index.computeIfPresent(key, (k, set) -> {
+            set.remove(subscriber);
+            return set.isEmpty() ? null : set;
+        });
+        subscriber.emitter.onCompletion(subscriber::close);
+        subscriber.emitter.onTimeout(subscriber::close);
+        subscriber.emitter.onError(e -> subscriber.close());
+        return subscriber;
+    }
+
+    // ✅ Built once per transition and shared by every subscriber
+    private Set<ResponseBodyEmitter.DataWithMediaType> event(StatusEvent status) {
+        return SseEmitter.event()
+                .id(Long.toString(sequence.incrementAndGet()))
+                .name("status")
+                .data(status, MediaType.APPLICATION_JSON)
+                .build();
+    }
+
+    private final class Subscriber {
+        final SseEmitter emitter;
+        final ArrayDeque<Set<ResponseBodyEmitter.DataWithMediaType>> queue = new ArrayDeque<>();
+        final AtomicBoolean draining = new AtomicBoolean();
+        final AtomicBoolean closed = new AtomicBoolean();
+        volatile Runnable onClose;
+        volatile long sendingSince; // ✅ 0 while no send is in progress
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void offer(Set<ResponseBodyEmitter.DataWithMediaType> event) {
+            if (closed.get()) return;
+            synchronized (queue) {
+                if (queue.size() >= bufferSize) {
+                    queue.pollFirst();
+                    dropped.incrementAndGet();
+                }
+                queue.addLast(event);
+            }
+            scheduleDrain();
+        }
+
+        void heartbeat(Set<ResponseBodyEmitter.DataWithMediaType> ping, long stuckBefore) {
+            long since = sendingSince;
+            if (since != 0 && since < stuckBefore) {
+                // ✅ Not complete(): the emitter is locked by the blocked send; the sender completes it once the write returns
+                if (detach()) {
+                    stalled.incrementAndGet();
+                    logger.debug("Detached order event subscriber stuck in a send for {} ms", System.currentTimeMillis() - since);
+                }
+                return;
+            }
+            offerIfIdle(ping);
+        }
+
+        void offerIfIdle(Set<ResponseBodyEmitter.DataWithMediaType> event) {
+            if (closed.get()) return;
+            synchronized (queue) {
+                if (!queue.isEmpty()) return;
+                queue.addLast(event);
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (!draining.compareAndSet(false, true)) return;
+            try {
+                senders.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                draining.set(false);
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                Set<ResponseBodyEmitter.DataWithMediaType> next;
+                synchronized (queue) {
+                    next = queue.pollFirst();
+                    if (next == null) {
+                        draining.set(false);
+                        return;
+                    }
+                }
+                sendingSince = System.currentTimeMillis();
+                try {
+                    emitter.send(next);
+                } catch (IOException | IllegalStateException e) {
+                    // ✅ Client went away; the container reports the same through onError/onCompletion
+                    logger.debug("Dropping order event subscriber: {}", e.getMessage());
+                    sendingSince = 0;
+                    close();
+                    return;
+                }
+                sendingSince = 0;
+                if (closed.get()) {
+                    // Detached while this send was stuck
+                    complete();
+                    return;
+                }
+            }
+        }
+
+        void close() {
+            detach();
+            complete();
+        }
+
+        // ✅ Stops routing events here; returns false if it was already detached
+        private boolean detach() {
+            if (!closed.compareAndSet(false, true)) return false;
+            synchronized (queue) {
+                queue.clear();
+            }
+            Runnable callback = onClose;
+            if (callback != null) callback.run();
+            return true;
+        }
+
+        private void complete() {
+            try {
+                emitter.complete();
+            } catch (RuntimeException ignored) {
+                // already completed by the container
+            }
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.ecommerce.backend.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Streams orders and their items straight from a forward-only MySQL result set
+ * to the response, so heap use does not grow with order history.
+ *
+ * CSV is one line per item with the order columns repeated (orders without
+ * items get one line with empty item columns). NDJSON is one line per order
+ * with its items nested; rows arrive ordered by order id, so only the order
+ * being written is ever held in memory.
+ */
+@Service
+public class OrderExportService {
+
+    public enum Format { NDJSON, CSV }
+
+    private static final String[] ORDER_COLUMNS = {
+            "orderId", "userId", "userName", "userEmail", "status", "paymentMethod", "orderedTime", "deliveryDate",
+            "subtotal", "shipping", "tax", "total", "address", "agentName"
+    };
+    private static final String[] ITEM_COLUMNS = {
+            "productId", "name", "sku", "brand", "category", "price", "qty", "unit"
+    };
+
+    private static final Calendar UTC = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public void export(Format format, String status, LocalDate from, LocalDate to, OutputStream target) throws IOException {
+        OutputStream out = new BufferedOutputStream(target, 64 * 1024);
+
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(
+                "SELECT o.id, o.user_id, u.username, u.email, o.status, o.payment_method, o.ordered_at, o.ordered_time, " +
+                        "o.delivery_on, o.delivery_date, o.subtotal, o.shipping, o.tax, o.total, o.address, a.name AS agent_name, " +
+                        "i.product_id, i.name AS item_name, i.sku, i.brand, i.category, i.price, i.qty, i.unit " +
+                        "FROM orders o " +
+                        "LEFT JOIN users u ON u.id = o.user_id " +
+                        "LEFT JOIN delivery_agents a ON a.id = o.agent_id " +
+                        "LEFT JOIN items i ON i.order_id = o.id WHERE 1 = 1");
+        if (status != null && !status.isBlank()) {
+            sql.append(" AND o.status = ?");
+            args.add(status);
+        }
+        if (from != null) {
+            sql.append(" AND o.ordered_at >= ?");
+            args.add(Timestamp.from(from.atStartOfDay(ZoneOffset.UTC).toInstant()));
+        }
+        if (to != null) {
+            sql.append(" AND o.ordered_at < ?");
+            args.add(Timestamp.from(to.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant()));
+        }
+        sql.append(" ORDER BY o.id, i.id");
+
+        // ✅ Fetch size MIN_VALUE makes Connector/J stream rows one at a time instead of buffering the result
+        JdbcTemplate streaming = new JdbcTemplate(dataSource);
+        streaming.setFetchSize(Integer.MIN_VALUE);
+
+        RowWriter writer = format == Format.CSV ? new CsvWriter(out) : new NdjsonWriter(out);
+        streaming.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            for (int i = 0; i < args.size(); i++) {
+                Object arg = args.get(i);
+                // ✅ Same UTC wall-time convention Hibernate uses for ordered_at
+                if (arg instanceof Timestamp ts) ps.setTimestamp(i + 1, ts, (Calendar) UTC.clone());
+                else ps.setObject(i + 1, arg);
+            }
+            return ps;
+        }, rs -> {
+            try {
+                writer.row(rs);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.finish();
+    }
+
+    private interface RowWriter {
+        void row(ResultSet rs) throws SQLException, IOException;
+
+        void finish() throws IOException;
+    }
+
+    private static Object[] orderValues(ResultSet rs) throws SQLException {
+        Timestamp orderedAt = rs.getTimestamp("ordered_at", (Calendar) UTC.clone());
+        LocalDate deliveryOn = rs.getObject("delivery_on", LocalDate.class);
+        return new Object[]{
+                rs.getLong("id"),
+                uuid(rs.getObject("user_id")),
+                rs.getString("username"),
+                rs.getString("email"),
+                rs.getString("status"),
+                rs.getString("payment_method"),
+                orderedAt != null ? OrderTimeline.formatPlaced(orderedAt.toInstant()) : rs.getString("ordered_time"),
+                deliveryOn != null ? deliveryOn.toString() : rs.getString("delivery_date"),
+                rs.getDouble("subtotal"),
+                rs.getDouble("shipping"),
+                rs.getDouble("tax"),
+                rs.getDouble("total"),
+                rs.getString("address"),
+                rs.getString("agent_name")
+        };
+    }
+
+    private static Object[] itemValues(ResultSet rs) throws SQLException {
+        if (rs.getString("product_id") == null) return null;
+        return new Object[]{
+                rs.getString("product_id"),
+                rs.getString("item_name"),
+                rs.getString("sku"),
+                rs.getString("brand"),
+                rs.getString("category"),
+                rs.getDouble("price"),
+                rs.getInt("qty"),
+                rs.getString("unit")
+        };
+    }
+
+    // ✅ users.id is binary(16) on MySQL
+    private static String uuid(Object value) {
+        if (value instanceof byte[] bytes && bytes.length == 16) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            return new UUID(buffer.getLong(), buffer.getLong()).toString();
+        }
+        return value != null ? value.toString() : null;
+    }
+
+    private static final class CsvWriter implements RowWriter {
+        private final Writer out;
+
+        CsvWriter(OutputStream out) throws IOException {
+            this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            List<String> header = new ArrayList<>(List.of(ORDER_COLUMNS));
+            header.addAll(List.of(ITEM_COLUMNS));
+            line(header.toArray());
+        }
+
+        @Override
+        public void row(ResultSet rs) throws SQLException, IOException {
+            Object[] order = orderValues(rs);
+            Object[] item = itemValues(rs);
+            Object[] values = Arrays.copyOf(order, ORDER_COLUMNS.length + ITEM_COLUMNS.length);
+            if (item != null) System.arraycopy(item, 0, values, ORDER_COLUMNS.length, item.length);
+            line(values);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            out.flush();
+        }
+
+        private void line(Object[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) out.write(',');
+                if (values[i] instanceof Number) out.write(values[i].toString());
+                else if (values[i] != null) out.write(escape(values[i].toString()));
+            }
+            out.write("\r\n");
+        }
+
+        // ✅ Text that a spreadsheet would run as a formula (=, +, -, @, tab, CR first) gets a leading '
+        private static String escape(String value) {
+            if (!value.isEmpty() && "=+-@\t\r".indexOf(value.charAt(0)) >= 0) {
+                value = "'" + value;
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+    }
+
+    private final class NdjsonWriter implements RowWriter {
+        private final OutputStream out;
+        private long currentId = -1;
+        private Object[] currentOrder;
+        private final List<Object[]> currentItems = new ArrayList<>();
+
+        NdjsonWriter(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void row(ResultSet rs) throws SQLException, IOException {
+            long id = rs.getLong("id");
+            if (id != currentId) {
+                flushOrder();
+                currentId = id;
+                currentOrder = orderValues(rs);
+            }
+            Object[] item = itemValues(rs);
+            if (item != null) currentItems.add(item);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            flushOrder();
+            out.flush();
+        }
+
+        private void flushOrder() throws IOException {
+            if (currentOrder == null) return;
+
+            JsonGenerator json = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+            json.writeStartObject();
+            for (int i = 0; i < ORDER_COLUMNS.length; i++) {
+                json.writeFieldName(ORDER_COLUMNS[i]);
+                json.writeObject(currentOrder[i]);
+            }
+            json.writeArrayFieldStart("items");
+            for (Object[] item : currentItems) {
+                json.writeStartObject();
+                for (int i = 0; i < ITEM_COLUMNS.length; i++) {
+                    json.writeFieldName(ITEM_COLUMNS[i]);
+                    json.writeObject(item[i]);
+                }
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+            json.close();
+            out.write('\n');
+
+            currentOrder = null;
+            currentItems.clear();
+        }
+    }
+}
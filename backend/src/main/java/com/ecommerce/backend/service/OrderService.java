@@ -2,21 +2,27 @@ package com.ecommerce.backend.service;
 
 import com.ecommerce.backend.dto.OrderDTO;
 import com.ecommerce.backend.dto.ItemDTO;
+import com.ecommerce.backend.dto.OrderPageDTO;
+import com.ecommerce.backend.dto.OrderSummaryDTO;
 import com.ecommerce.backend.entity.Order;
 import com.ecommerce.backend.entity.Item;
 import com.ecommerce.backend.entity.User;
-import com.ecommerce.backend.entity.DeliveryAgent;
 import com.ecommerce.backend.repository.OrderRepository;
 import com.ecommerce.backend.repository.UserRepository;
 import com.ecommerce.backend.repository.DeliveryAgentRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.*;
 
 @Service
 public class OrderService {
 
+    private static final int MAX_PAGE_SIZE = 200;
+
     @Autowired
     private OrderRepository orderRepository;
 
@@ -26,8 +32,48 @@ public class OrderService {
     @Autowired
     private DeliveryAgentRepository deliveryAgentRepository;
 
-    // ✅ Save new order with random delivery agent
+    @Autowired
+    private StockReservationService reservationService;
+
+    @Autowired
+    private DeliveryDispatcher deliveryDispatcher;
+
+    @Autowired
+    private OrderTransitionTimers transitionTimers;
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private OrderEventHub orderEventHub;
+
+    @Autowired
+    private PricingEngine pricingEngine;
+
+    // ✅ Save new order with the least-loaded delivery agent; amounts are repriced on the server, not taken from the client
+    @Transactional
     public Order saveOrder(OrderDTO dto) {
+        // ✅ Loaded before claiming so a missing user can't turn reservations into sales; the second lookup is a cache hit
+        if (userRepository.findById(dto.getUserId()).isEmpty()) return null;
+
+        Map<String, Integer> ordered = reprice(dto);
+        if (ordered == null) return null;
+
+        // ✅ Flash-sale reservations become sales only if the order commits, and only for units the order holds
+        if (dto.getReservationIds() != null && !dto.getReservationIds().isEmpty()
+                && reservationService.claimForOrder(dto.getReservationIds(), dto.getUserId(), ordered) == null) {
+            return null;
+        }
+        return saveClaimedOrder(dto);
+    }
+
+    /**
+     * Inserts the order without touching its reservation ids or amounts. For
+     * callers that have already claimed and priced it in the same transaction
+     * (checkout claims first so it knows how many units are left to decrement).
+     */
+    @Transactional
+    public Order saveClaimedOrder(OrderDTO dto) {
         Optional<User> userOpt = userRepository.findById(dto.getUserId());
         if (userOpt.isEmpty()) return null;
 
@@ -36,6 +82,7 @@ public class OrderService {
         Order order = new Order();
         order.setUser(user);
         order.setSubtotal(dto.getSubtotal());
+        order.setDiscount(dto.getDiscount());
         order.setShipping(dto.getShipping());
         order.setTax(dto.getTax());
         order.setTotal(dto.getTotal());
@@ -46,12 +93,16 @@ public class OrderService {
         order.setOrderedTime(dto.getOrderedTime());
         order.setStatus(dto.getStatus());
         order.setPaymentMethod(dto.getPaymentMethod());
+        order.setOrderedAt(OrderTimeline.parsePlacedOrNull(dto.getOrderedTime()));
+        order.setOrderedOn(OrderTimeline.parseDateOrNull(dto.getOrderedDate()));
+        order.setDeliveryOn(OrderTimeline.parseDateOrNull(dto.getDeliveryDate()));
+        order.setNextStatusAt(OrderTimeline.dueAt(order.getOrderedAt(), order.getDeliveryOn(), dto.getStatus(), Instant.now()));
 
-        // ✅ Assign random delivery agent
-        List<DeliveryAgent> agents = deliveryAgentRepository.findAll();
-        if (!agents.isEmpty()) {
-            DeliveryAgent assignedAgent = agents.get(new Random().nextInt(agents.size()));
-            order.setDeliveryAgent(assignedAgent);
+        // ✅ Least-loaded agent from the in-memory dispatcher; a reference avoids loading the row
+        Long agentId = deliveryDispatcher.assign();
+        if (agentId != null) {
+            order.setDeliveryAgent(deliveryAgentRepository.getReferenceById(agentId));
+            TransactionCallbacks.afterRollback(() -> deliveryDispatcher.release(agentId));
         }
 
         List<Item> items = new ArrayList<>();
@@ -72,7 +123,71 @@ public class OrderService {
         }
 
         order.setItems(items);
-        return orderRepository.save(order);
+        Order saved = orderRepository.save(order);
+
+        // ✅ Next status change fires from the in-process timing wheel once the order is committed
+        TransactionCallbacks.afterCommit(() -> transitionTimers.schedule(saved.getId(), saved.getNextStatusAt()));
+        salesRollupService.orderPlaced(saved);
+        return saved;
+    }
+
+    /**
+     * Overwrites the item prices and order amounts with a server-side quote and
+     * returns the ordered quantity per product, or null when an item has no
+     * product id, a quantity below one, or a product the catalog doesn't have.
+     */
+    private Map<String, Integer> reprice(OrderDTO dto) {
+        if (dto.getItems() == null || dto.getItems().isEmpty()) return null;
+
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        for (ItemDTO item : dto.getItems()) {
+            if (item.getProductId() == null || item.getQty() < 1) return null;
+            quantities.merge(item.getProductId(), item.getQty(), Integer::sum);
+        }
+
+        PricingEngine.Quote quote = pricingEngine.quote(quantities);
+        if (!quote.missing().isEmpty()) return null;
+
+        dto.getItems().forEach(item -> item.setPrice(quote.line(item.getProductId()).unitPrice()));
+        dto.setSubtotal(quote.subtotal());
+        dto.setDiscount(quote.discount());
+        dto.setShipping(quote.shipping());
+        dto.setTax(quote.tax());
+        dto.setTotal(quote.total());
+        return quantities;
+    }
+
+    // ✅ Admin listing, newest first; the cursor is the last order id of the previous page
+    @Transactional(readOnly = true)
+    public OrderPageDTO<OrderDTO> listOrders(String status, LocalDate from, LocalDate to, UUID userId,
+                                             String cursor, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<Order> orders = orderRepository.findPageWithDetails(status, from, to, userId, parseCursor(cursor), size + 1);
+
+        boolean more = orders.size() > size;
+        List<Order> page = more ? orders.subList(0, size) : orders;
+        List<OrderDTO> dtos = page.stream().map(this::mapToDTO).toList();
+        return new OrderPageDTO<>(dtos, more ? String.valueOf(page.get(size - 1).getId()) : null);
+    }
+
+    @Transactional(readOnly = true)
+    public OrderPageDTO<OrderSummaryDTO> listOrderSummaries(String status, LocalDate from, LocalDate to, UUID userId,
+                                                            String cursor, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<OrderSummaryDTO> rows = orderRepository.findSummaryPage(status, from, to, userId, parseCursor(cursor), size + 1);
+
+        boolean more = rows.size() > size;
+        List<OrderSummaryDTO> page = more ? rows.subList(0, size) : rows;
+        return new OrderPageDTO<>(page, more ? String.valueOf(page.get(size - 1).getId()) : null);
+    }
+
+    private static Long parseCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) return null;
+        try {
+            return Long.valueOf(cursor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
     }
 
     // ✅ Convert Order to DTO with agent and user info
@@ -83,14 +198,16 @@ public class OrderService {
         dto.setUserName(order.getUser().getUsername()); // ✅ Added
         dto.setUserEmail(order.getUser().getEmail());   // ✅ Added
         dto.setSubtotal(order.getSubtotal());
+        dto.setDiscount(order.getDiscount());
         dto.setShipping(order.getShipping());
         dto.setTax(order.getTax());
         dto.setTotal(order.getTotal());
         dto.setAddress(order.getAddress());
-        dto.setDeliveryDate(order.getDeliveryDate());
-        dto.setOrderedDate(order.getOrderedDate());
+        // ✅ Typed columns render in the same string formats the frontend already parses
+        dto.setDeliveryDate(order.getDeliveryOn() != null ? order.getDeliveryOn().toString() : order.getDeliveryDate());
+        dto.setOrderedDate(order.getOrderedOn() != null ? order.getOrderedOn().toString() : order.getOrderedDate());
         dto.setOrderedDay(order.getOrderedDay());
-        dto.setOrderedTime(order.getOrderedTime());
+        dto.setOrderedTime(order.getOrderedAt() != null ? OrderTimeline.formatPlaced(order.getOrderedAt()) : order.getOrderedTime());
         dto.setStatus(order.getStatus());
         dto.setPaymentMethod(order.getPaymentMethod());
 
@@ -121,12 +238,25 @@ public class OrderService {
     }
 
     // ✅ Cancel order
+    @Transactional
     public Order cancelOrder(Long orderId) {
-        Optional<Order> orderOpt = orderRepository.findById(orderId);
+        Optional<Order> orderOpt = orderRepository.findByIdForUpdate(orderId);
         if (orderOpt.isEmpty()) return null;
 
         Order order = orderOpt.get();
+        // ✅ The row is locked, so this status is current: a second cancel applies no rollup delta, release or event
+        if ("Cancelled".equals(order.getStatus())) return order;
+
+        if (order.getDeliveryAgent() != null && !OrderTimeline.isTerminal(order.getStatus())) {
+            Long agentId = order.getDeliveryAgent().getId();
+            TransactionCallbacks.afterCommit(() -> deliveryDispatcher.release(agentId));
+        }
+        salesRollupService.orderCancelled(order);
         order.setStatus("Cancelled");
+        order.setNextStatusAt(null);
+        TransactionCallbacks.afterCommit(() -> transitionTimers.cancel(orderId));
+        UUID userId = order.getUser() != null ? order.getUser().getId() : null;
+        TransactionCallbacks.afterCommit(() -> orderEventHub.publish(orderId, userId, "Cancelled"));
         return orderRepository.save(order);
     }
 
@@ -0,0 +1,96 @@
+package com.ecommerce.backend.service;
+
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Time-driven order status rules, shared by order placement and the status
+ * scheduler.
+ *
+ * An order is "Ordered" for its first 30 minutes, "Shipped" until the hour
+ * mark, then "Out for Delivery" until its delivery date begins (IST), after
+ * which it is "Delivered". {@link #nextTransition} gives the instant the
+ * status next changes, which is what orders.next_status_at stores.
+ */
+public final class OrderTimeline {
+
+    public static final ZoneId ZONE = ZoneId.of("Asia/Kolkata");
+    public static final List<String> TERMINAL_STATUSES = List.of("Delivered", "Cancelled");
+
+    private static final Duration SHIPPED_AFTER = Duration.ofMinutes(30);
+    private static final Duration OUT_FOR_DELIVERY_AFTER = Duration.ofMinutes(60);
+    private static final DateTimeFormatter ORDERED_TIME = DateTimeFormatter.ISO_DATE_TIME.withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter ISO_MILLIS = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
+
+    private OrderTimeline() {
+    }
+
+    public static boolean isTerminal(String status) {
+        return TERMINAL_STATUSES.contains(status);
+    }
+
+    public static String statusAt(Instant placed, LocalDate delivery, Instant now) {
+        if (!now.isBefore(deliveryStart(delivery))) return "Delivered";
+
+        Duration elapsed = Duration.between(placed, now);
+        if (elapsed.compareTo(OUT_FOR_DELIVERY_AFTER) >= 0) return "Out for Delivery";
+        if (elapsed.compareTo(SHIPPED_AFTER) >= 0) return "Shipped";
+        return "Ordered";
+    }
+
+    // ✅ First breakpoint after now at which the status differs; null once Delivered
+    public static Instant nextTransition(Instant placed, LocalDate delivery, Instant now) {
+        String current = statusAt(placed, delivery, now);
+        if (isTerminal(current)) return null;
+
+        Instant next = null;
+        for (Instant breakpoint : List.of(placed.plus(SHIPPED_AFTER), placed.plus(OUT_FOR_DELIVERY_AFTER), deliveryStart(delivery))) {
+            if (breakpoint.isAfter(now) && !statusAt(placed, delivery, breakpoint).equals(current)
+                    && (next == null || breakpoint.isBefore(next))) {
+                next = breakpoint;
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Value for orders.next_status_at: now if the stored status is already
+     * stale, the next breakpoint otherwise, and null for terminal orders or
+     * orders missing either date.
+     */
+    public static Instant dueAt(Instant placed, LocalDate delivery, String status, Instant now) {
+        if (isTerminal(status) || placed == null || delivery == null) return null;
+        return statusAt(placed, delivery, now).equals(status) ? nextTransition(placed, delivery, now) : now;
+    }
+
+    public static Instant parsePlaced(String orderedTime) {
+        return ZonedDateTime.parse(orderedTime, ORDERED_TIME).toInstant();
+    }
+
+    // ✅ Lenient parsing of the client's strings for the typed columns: null when absent or malformed
+    public static Instant parsePlacedOrNull(String orderedTime) {
+        try {
+            return orderedTime != null ? parsePlaced(orderedTime) : null;
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    public static LocalDate parseDateOrNull(String date) {
+        try {
+            return date != null ? LocalDate.parse(date) : null;
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    // ✅ Same shape as the frontend's Date.toISOString(), e.g. 2025-01-31T09:15:00.000Z
+    public static String formatPlaced(Instant placed) {
+        return ISO_MILLIS.format(placed);
+    }
+
+    private static Instant deliveryStart(LocalDate delivery) {
+        return delivery.atStartOfDay(ZONE).toInstant();
+    }
+}
@@ -0,0 +1,97 @@
+package com.ecommerce.backend.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * In-process timers for each active order's next status transition.
+ *
+ * Orders are scheduled when they commit and cancelled with the order. A
+ * single ticker thread advances the wheel and hands everything that fell due
+ * in that tick to the registered handler as one batch. The DB poll in
+ * OrderStatusScheduler stays as a backstop for anything a failed batch or a
+ * crash leaves behind.
+ */
+@Service
+public class OrderTransitionTimers {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderTransitionTimers.class);
+
+    @Value("${orders.timers.tick-ms:1000}")
+    private long tickMillis;
+
+    private TimingWheel<Long> wheel;
+    private ScheduledExecutorService ticker;
+    private volatile Consumer<List<Long>> handler;
+
+    @PostConstruct
+    public void init() {
+        // ✅ 64 slots x 4 levels at 1s ticks covers about 194 days
+        wheel = new TimingWheel<>(tickMillis, 64, 4, System.currentTimeMillis());
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-timers");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    public void onDue(Consumer<List<Long>> handler) {
+        this.handler = handler;
+    }
+
+    public void schedule(Long orderId, Instant dueAt) {
+        if (orderId == null) return;
+        if (dueAt == null) {
+            wheel.cancel(orderId);
+        } else {
+            wheel.schedule(orderId, dueAt.toEpochMilli());
+        }
+    }
+
+    public void scheduleAll(Map<Long, Instant> dueTimes) {
+        dueTimes.forEach(this::schedule);
+    }
+
+    public void cancel(Long orderId) {
+        if (orderId != null) wheel.cancel(orderId);
+    }
+
+    public int pending() {
+        return wheel.size();
+    }
+
+    private void tick() {
+        try {
+            List<Long> due = wheel.advance(System.currentTimeMillis());
+            if (due.isEmpty()) return;
+
+            Consumer<List<Long>> current = handler;
+            if (current == null) {
+                logger.warn("{} order transitions fell due before a handler was registered", due.size());
+                return;
+            }
+            current.accept(due);
+        } catch (RuntimeException e) {
+            // ✅ Never kill the ticker; the DB poll picks up whatever was missed
+            logger.error("Order transition batch failed", e);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.ecommerce.backend.service;
+
+import com.ecommerce.backend.dto.ProductDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resident product id -> (price, discount %) table used by the pricing engine.
+ *
+ * Ids live in an open-addressing array with the prices and discounts in
+ * parallel primitive arrays, so a lookup is one hash, a short probe and two
+ * array reads with no boxing. The table is immutable and rebuilt lazily from
+ * ProductSearchIndex whenever its catalog version moves on; stock changes do
+ * not invalidate it.
+ */
+@Component
+public class PriceSnapshot {
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Autowired
+    private ProductService productService;
+
+    private volatile Table table = new Table(-1, Collections.emptyList());
+
+    public Table current() {
+        if (!searchIndex.isLoaded()) {
+            productService.loadSearchIndex();
+        }
+
+        Table t = table;
+        long version = searchIndex.catalogModCount();
+        if (t.version == version) return t;
+
+        synchronized (this) {
+            t = table;
+            if (t.version != version) {
+                t = new Table(version, searchIndex.all());
+                table = t;
+            }
+            return t;
+        }
+    }
+
+    public static final class Table {
+        final long version;
+        private final String[] ids;
+        private final double[] price;
+        private final double[] discount;
+        private final int mask;
+
+        private Table(long version, List<ProductDTO> products) {
+            this.version = version;
+            // ✅ Power-of-two capacity at most half full keeps probe chains short
+            int capacity = Integer.highestOneBit(Math.max(2, products.size()) * 2 - 1) << 1;
+            this.ids = new String[capacity];
+            this.price = new double[capacity];
+            this.discount = new double[capacity];
+            this.mask = capacity - 1;
+            for (ProductDTO p : products) {
+                int slot = probe(p.getId());
+                ids[slot] = p.getId();
+                price[slot] = p.getPrice();
+                discount[slot] = p.getDiscountPercentage();
+            }
+        }
+
+        public long version() {
+            return version;
+        }
+
+        // ✅ Slot of the product, or -1 if it is not in the catalog
+        public int slotOf(String id) {
+            if (id == null) return -1;
+            int slot = probe(id);
+            return ids[slot] != null ? slot : -1;
+        }
+
+        public double price(int slot) {
+            return price[slot];
+        }
+
+        public double discountPercentage(int slot) {
+            return discount[slot];
+        }
+
+        private int probe(String id) {
+            int h = id.hashCode();
+            int slot = (h ^ (h >>> 16)) & mask;
+            while (ids[slot] != null && !ids[slot].equals(id)) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.ecommerce.backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prices a cart on the server from the resident {@link PriceSnapshot}.
+ *
+ * Each line is list price x quantity less the product's discountPercentage;
+ * shipping and tax follow the same flat policy the storefront shows (no charge
+ * for an empty cart). Amounts are rounded to cents per line and per total.
+ * Nothing here touches the database.
+ */
+@Service
+public class PricingEngine {
+
+    @Autowired
+    private PriceSnapshot priceSnapshot;
+
+    @Value("${pricing.shipping-flat:3.99}")
+    private double shippingFlat;
+
+    @Value("${pricing.tax-flat:2.0}")
+    private double taxFlat;
+
+    @Value("${pricing.tax-rate:0}")
+    private double taxRate;
+
+    public record Line(String productId, int qty, double unitPrice, double discountPercentage,
+                       double subtotal, double discount, double total) {
+    }
+
+    public record Quote(List<Line> lines, List<String> missing, double subtotal, double discount,
+                        double shipping, double tax, double total, long priceVersion) {
+
+        public Line line(String productId) {
+            for (Line line : lines) {
+                if (line.productId().equals(productId)) return line;
+            }
+            return null;
+        }
+    }
+
+    // ✅ Quantities per product id; products missing from the catalog are reported, not priced
+    public Quote quote(Map<String, Integer> quantities) {
+        PriceSnapshot.Table table = priceSnapshot.current();
+
+        List<Line> lines = new ArrayList<>(quantities.size());
+        List<String> missing = new ArrayList<>();
+        double subtotal = 0;
+        double discount = 0;
+        for (Map.Entry<String, Integer> entry : quantities.entrySet()) {
+            int slot = table.slotOf(entry.getKey());
+            if (slot < 0) {
+                missing.add(entry.getKey());
+                continue;
+            }
+
+            int qty = entry.getValue();
+            double unit = table.price(slot);
+            double percent = Math.max(0, Math.min(100, table.discountPercentage(slot)));
+            double lineSubtotal = cents(unit * qty);
+            double lineDiscount = cents(lineSubtotal * percent / 100);
+            lines.add(new Line(entry.getKey(), qty, unit, percent, lineSubtotal, lineDiscount,
+                    cents(lineSubtotal - lineDiscount)));
+            subtotal += lineSubtotal;
+            discount += lineDiscount;
+        }
+
+        boolean empty = lines.isEmpty();
+        double net = subtotal - discount;
+        double shipping = empty ? 0 : shippingFlat;
+        double tax = empty ? 0 : cents(taxFlat + net * taxRate);
+        return new Quote(lines, missing, cents(subtotal), cents(discount), shipping, tax,
+                cents(net + shipping + tax), table.version());
+    }
+
+    private static double cents(double amount) {
+        return Math.round(amount * 100) / 100.0;
+    }
+}
@@ -0,0 +1,448 @@
+package com.ecommerce.backend.service;
+
+import com.ecommerce.backend.dto.ProductDTO;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * Resident catalog index used by /api/products/filter.
+ *
+ * Holds one ProductDTO per product plus a sorted suffix index of title tokens
+ * and exact-match posting lists for brand and category. ProductService keeps it
+ * in sync on every save/delete, so filtering never has to go back to MySQL.
+ *
+ * Text search covers titles only, like the SQL path (ProductSpecifications);
+ * brand and description are deliberately not text-indexed so both paths keep
+ * returning the same rows. Brand is matched exactly through its posting list.
+ * Product ids are also kept presorted per sort key, so unfiltered and
+ * price/rating-only listings page by walking one array instead of scanning
+ * and sorting the catalog.
+ */
+@Component
+public class ProductSearchIndex {
+
+    // ✅ TreeMap keeps primary-key order, matching the unsorted findAll() results
+    private final NavigableMap<String, ProductDTO> products = new TreeMap<>();
+    // ✅ Every suffix of every title token; a substring query is a prefix range over these keys
+    private final NavigableMap<String, Set<String>> titleSuffixes = new TreeMap<>();
+    private final Map<String, Set<String>> byBrand = new HashMap<>();
+    private final Map<String, Set<String>> byCategory = new HashMap<>();
+    // ✅ Lowercased once at index time instead of on every filter call
+    private final Map<String, String> lowerTitles = new HashMap<>();
+
+    private static final List<String> SORT_KEYS = List.of("id", "price-asc", "price-desc", "rating");
+    // ✅ Narrowed candidate sets larger than 1/8 of the catalog are paged off the presorted ids too
+    private static final int PRESORTED_SCAN_RATIO = 8;
+
+    // ✅ Ids in each sort order; rebuilt on first use after a catalog write (stock patches don't move them)
+    private record SortedIds(long catalogModCount, Map<String, String[]> bySort) {
+    }
+
+    private volatile SortedIds sortedIds;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean loaded = false;
+    private volatile long modCount = 0;
+    private volatile long catalogModCount = 0;
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    // ✅ Bumped on every write so derived snapshots know when they are stale
+    public long modCount() {
+        return modCount;
+    }
+
+    // ✅ Like modCount, but stock patches leave it alone; snapshots that ignore stock key off this one
+    public long catalogModCount() {
+        return catalogModCount;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return products.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ✅ Replace the whole index (used at startup)
+    public void rebuild(Collection<ProductDTO> all) {
+        lock.writeLock().lock();
+        try {
+            products.clear();
+            titleSuffixes.clear();
+            byBrand.clear();
+            byCategory.clear();
+            lowerTitles.clear();
+            for (ProductDTO dto : all) {
+                add(dto);
+            }
+            loaded = true;
+            modCount++;
+            catalogModCount++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ✅ Insert or replace a single product
+    public void put(ProductDTO dto) {
+        if (dto == null || dto.getId() == null) return;
+        lock.writeLock().lock();
+        try {
+            ProductDTO previous = products.get(dto.getId());
+            if (previous != null) {
+                unlink(previous);
+            }
+            add(dto);
+            modCount++;
+            catalogModCount++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            ProductDTO previous = products.get(id);
+            if (previous != null) {
+                unlink(previous);
+                modCount++;
+                catalogModCount++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ✅ Stock is not indexed, so only the product's entry is swapped; returns the new stock, or -1 when not indexed
+    public int adjustStock(String id, int delta) {
+        lock.writeLock().lock();
+        try {
+            ProductDTO dto = products.get(id);
+            if (dto == null) return -1;
+            ProductDTO updated = withStock(dto, dto.getStock() + delta);
+            products.put(id, updated);
+            modCount++;
+            return updated.getStock();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void setStock(String id, int stock) {
+        lock.writeLock().lock();
+        try {
+            ProductDTO dto = products.get(id);
+            if (dto != null) {
+                products.put(id, withStock(dto, stock));
+                modCount++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ✅ get()/all() hand out the stored DTOs, so they are never mutated once indexed
+    private static ProductDTO withStock(ProductDTO dto, int stock) {
+        ProductDTO copy = new ProductDTO();
+        copy.setId(dto.getId());
+        copy.setTitle(dto.getTitle());
+        copy.setCategory(dto.getCategory());
+        copy.setPrice(dto.getPrice());
+        copy.setStock(Math.max(0, stock));
+        copy.setRating(dto.getRating());
+        copy.setBrand(dto.getBrand());
+        copy.setThumbnail(dto.getThumbnail());
+        copy.setThumbnailVariants(dto.getThumbnailVariants());
+        copy.setDiscountPercentage(dto.getDiscountPercentage());
+        copy.setUpdatedAt(dto.getUpdatedAt());
+        return copy;
+    }
+
+    public Optional<ProductDTO> get(String id) {
+        lock.readLock().lock();
+        try {
+            return Optional.ofNullable(products.get(id));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<ProductDTO> all() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(products.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ✅ Ids whose title contains the search text (case-insensitive)
+    public Set<String> searchIds(String search) {
+        lock.readLock().lock();
+        try {
+            String needle = search.toLowerCase();
+            Set<String> candidates = candidates(search, null, null);
+            Set<String> ids = new HashSet<>();
+            for (String id : candidates != null ? candidates : products.keySet()) {
+                String title = lowerTitles.get(id);
+                if (title != null && title.contains(needle)) {
+                    ids.add(id);
+                }
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Same semantics as the old stream pipeline: case-insensitive substring match
+     * on title, exact brand/category membership, inclusive price/rating bounds and
+     * a stable sort (ties keep primary-key order).
+     */
+    public List<ProductDTO> filter(String search,
+                                   List<String> brands,
+                                   List<String> categories,
+                                   Double priceMin,
+                                   Double priceMax,
+                                   Double ratingMin,
+                                   String sort,
+                                   int page,
+                                   int limit) {
+        if (limit <= 0) return Collections.emptyList();
+
+        lock.readLock().lock();
+        try {
+            Set<String> candidates = candidates(search, brands, categories);
+            String needle = search != null ? search.toLowerCase() : null;
+            int offset = (int) Math.min((long) Math.max(page - 1, 0) * limit, Integer.MAX_VALUE);
+
+            if (candidates == null || candidates.size() > products.size() / PRESORTED_SCAN_RATIO) {
+                return pageInOrder(sort, candidates, needle, brands, categories, priceMin, priceMax, ratingMin, offset, limit);
+            }
+
+            List<ProductDTO> matches = new ArrayList<>();
+            for (String id : candidates) {
+                ProductDTO p = products.get(id);
+                if (p != null && matches(p, needle, brands, categories, priceMin, priceMax, ratingMin)) {
+                    matches.add(p);
+                }
+            }
+            if (offset >= matches.size()) return Collections.emptyList();
+
+            return topK(matches, comparator(sort), offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean matches(ProductDTO p, String needle, List<String> brands, List<String> categories,
+                            Double priceMin, Double priceMax, Double ratingMin) {
+        if (needle != null) {
+            String title = lowerTitles.get(p.getId());
+            if (title == null || !title.contains(needle)) return false;
+        }
+        if (brands != null && !brands.isEmpty() && !brands.contains(p.getBrand())) return false;
+        if (categories != null && !categories.isEmpty() && !categories.contains(p.getCategory())) return false;
+        if (priceMin != null && p.getPrice() < priceMin) return false;
+        if (priceMax != null && p.getPrice() > priceMax) return false;
+        return ratingMin == null || p.getRating() >= ratingMin;
+    }
+
+    /**
+     * Walks the ids presorted for this sort and stops once the page is full. In
+     * price order the walk starts at the first id inside the price range (binary
+     * search) and stops at the first one past it. Caller holds the read lock.
+     */
+    private List<ProductDTO> pageInOrder(String sort, Set<String> candidates, String needle,
+                                         List<String> brands, List<String> categories,
+                                         Double priceMin, Double priceMax, Double ratingMin,
+                                         int offset, int limit) {
+        String[] order = sortedIds(sort);
+        boolean ascending = "price-asc".equals(sort);
+        boolean descending = "price-desc".equals(sort);
+
+        int start = 0;
+        if (ascending && priceMin != null) start = firstIndex(order, p -> p.getPrice() >= priceMin);
+        if (descending && priceMax != null) start = firstIndex(order, p -> p.getPrice() <= priceMax);
+
+        List<ProductDTO> page = new ArrayList<>(Math.min(limit, 64));
+        int skipped = 0;
+        for (int i = start; i < order.length && page.size() < limit; i++) {
+            ProductDTO p = products.get(order[i]);
+            if (p == null) continue;
+            if (ascending && priceMax != null && p.getPrice() > priceMax) break;
+            if (descending && priceMin != null && p.getPrice() < priceMin) break;
+            if (candidates != null && !candidates.contains(order[i])) continue;
+            if (!matches(p, needle, brands, categories, priceMin, priceMax, ratingMin)) continue;
+            if (skipped < offset) {
+                skipped++;
+                continue;
+            }
+            page.add(p);
+        }
+        return page;
+    }
+
+    // ✅ First position where the condition holds; it must be false-then-true along the array
+    private int firstIndex(String[] order, Predicate<ProductDTO> condition) {
+        int lo = 0;
+        int hi = order.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (condition.test(products.get(order[mid]))) hi = mid;
+            else lo = mid + 1;
+        }
+        return lo;
+    }
+
+    // ✅ Caller holds the read lock, so the catalog cannot change while the arrays are built
+    private String[] sortedIds(String sort) {
+        SortedIds current = sortedIds;
+        if (current == null || current.catalogModCount() != catalogModCount) {
+            List<ProductDTO> all = new ArrayList<>(products.values());
+            Map<String, String[]> bySort = new HashMap<>();
+            for (String key : SORT_KEYS) {
+                bySort.put(key, all.stream().sorted(comparator(key)).map(ProductDTO::getId).toArray(String[]::new));
+            }
+            current = new SortedIds(catalogModCount, bySort);
+            sortedIds = current;
+        }
+        return current.bySort().getOrDefault(sort, current.bySort().get("id"));
+    }
+
+    // ✅ Smallest posting list wins; null when nothing narrows the search
+    private Set<String> candidates(String search, List<String> brands, List<String> categories) {
+        List<Set<String>> lists = new ArrayList<>();
+
+        if (brands != null && !brands.isEmpty()) {
+            lists.add(union(byBrand, brands));
+        }
+        if (categories != null && !categories.isEmpty()) {
+            lists.add(union(byCategory, categories));
+        }
+        if (search != null) {
+            for (String token : tokenize(search)) {
+                Set<String> ids = new HashSet<>();
+                for (Set<String> posting : titleSuffixes.subMap(token, true, token + Character.MAX_VALUE, false).values()) {
+                    ids.addAll(posting);
+                }
+                lists.add(ids);
+            }
+        }
+
+        if (lists.isEmpty()) return null;
+
+        lists.sort(Comparator.comparingInt(Set::size));
+        Set<String> result = new HashSet<>(lists.get(0));
+        for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+            result.retainAll(lists.get(i));
+        }
+        return result;
+    }
+
+    private static Set<String> union(Map<String, Set<String>> postings, List<String> keys) {
+        Set<String> ids = new HashSet<>();
+        for (String key : keys) {
+            Set<String> posting = postings.get(key);
+            if (posting != null) ids.addAll(posting);
+        }
+        return ids;
+    }
+
+    private static Comparator<ProductDTO> comparator(String sort) {
+        Comparator<ProductDTO> byId = Comparator.comparing(ProductDTO::getId);
+        if ("price-asc".equals(sort)) return Comparator.comparingDouble(ProductDTO::getPrice).thenComparing(byId);
+        if ("price-desc".equals(sort)) return Comparator.comparingDouble(ProductDTO::getPrice).reversed().thenComparing(byId);
+        if ("rating".equals(sort)) return Comparator.comparingDouble(ProductDTO::getRating).reversed().thenComparing(byId);
+        return byId;
+    }
+
+    // ✅ Bounded heap selection: only offset + limit elements are ever ordered
+    private static List<ProductDTO> topK(List<ProductDTO> matches, Comparator<ProductDTO> order, int offset, int limit) {
+        int k = (int) Math.min((long) offset + limit, matches.size());
+
+        List<ProductDTO> head;
+        if (k == matches.size()) {
+            head = matches;
+            head.sort(order);
+        } else {
+            PriorityQueue<ProductDTO> heap = new PriorityQueue<>(k, order.reversed());
+            for (ProductDTO p : matches) {
+                if (heap.size() < k) {
+                    heap.add(p);
+                } else if (order.compare(p, heap.peek()) < 0) {
+                    heap.poll();
+                    heap.add(p);
+                }
+            }
+            head = new ArrayList<>(heap);
+            head.sort(order);
+        }
+        return new ArrayList<>(head.subList(offset, k));
+    }
+
+    private void add(ProductDTO dto) {
+        String id = dto.getId();
+        products.put(id, dto);
+        if (dto.getTitle() != null) {
+            lowerTitles.put(id, dto.getTitle().toLowerCase());
+        }
+        for (String suffix : suffixes(dto.getTitle())) {
+            titleSuffixes.computeIfAbsent(suffix, t -> new HashSet<>()).add(id);
+        }
+        if (dto.getBrand() != null) {
+            byBrand.computeIfAbsent(dto.getBrand(), b -> new HashSet<>()).add(id);
+        }
+        if (dto.getCategory() != null) {
+            byCategory.computeIfAbsent(dto.getCategory(), c -> new HashSet<>()).add(id);
+        }
+    }
+
+    private void unlink(ProductDTO dto) {
+        String id = dto.getId();
+        products.remove(id);
+        lowerTitles.remove(id);
+        for (String suffix : suffixes(dto.getTitle())) {
+            detach(titleSuffixes, suffix, id);
+        }
+        if (dto.getBrand() != null) detach(byBrand, dto.getBrand(), id);
+        if (dto.getCategory() != null) detach(byCategory, dto.getCategory(), id);
+    }
+
+    private static void detach(Map<String, Set<String>> postings, String key, String id) {
+        Set<String> posting = postings.get(key);
+        if (posting == null) return;
+        posting.remove(id);
+        if (posting.isEmpty()) postings.remove(key);
+    }
+
+    // ✅ A query token can only match inside a single title token, so its suffixes are enough
+    static Set<String> suffixes(String title) {
+        Set<String> suffixes = new HashSet<>();
+        for (String token : tokenize(title)) {
+            for (int i = 0; i < token.length(); i++) {
+                suffixes.add(token.substring(i));
+            }
+        }
+        return suffixes;
+    }
+
+    static Set<String> tokenize(String text) {
+        if (text == null || text.isBlank()) return Collections.emptySet();
+        Set<String> tokens = new HashSet<>();
+        for (String token : text.toLowerCase().split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) tokens.add(token);
+        }
+        return tokens;
+    }
+}
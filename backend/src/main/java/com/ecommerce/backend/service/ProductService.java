@@ -1,25 +1,75 @@
 package com.ecommerce.backend.service;
 
 import com.ecommerce.backend.dto.ProductDTO;
+import com.ecommerce.backend.dto.ProductFacetsDTO;
+import com.ecommerce.backend.dto.ProductPageDTO;
 import com.ecommerce.backend.entity.Product;
 import com.ecommerce.backend.repository.ProductRepository;
+import com.ecommerce.backend.repository.ProductSpecifications;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
-import java.util.List;
-import java.util.Optional;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
 public class ProductService {
 
+    private static final Logger logger = LoggerFactory.getLogger(ProductService.class);
+
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Autowired
+    private CatalogFacetSnapshot facetSnapshot;
+
+    @Autowired
+    private CatalogResponseCache responseCache;
+
+    @Autowired
+    private StockReservationService reservationService;
+
+    @Autowired
+    private ImageVariantService imageVariantService;
+
     @Value("${product.image.base-url}")
     private String baseImageUrl;
 
+    @Value("${product.filter.use-index:true}")
+    private boolean useSearchIndex;
+
+    // ✅ Load the resident search index once the app is up
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadSearchIndex() {
+        List<ProductDTO> all = getAllAsDTO();
+        searchIndex.rebuild(all);
+        responseCache.reset(all.stream()
+                .map(ProductDTO::getUpdatedAt)
+                .filter(Objects::nonNull)
+                .max(Comparator.naturalOrder())
+                .map(t -> t.atZone(ZoneId.systemDefault()).toInstant())
+                .orElse(null));
+        logger.info("Product search index loaded with {} products", searchIndex.size());
+    }
+
     public List<ProductDTO> getAllAsDTO() {
         return productRepository.findAll()
                 .stream()
@@ -55,34 +105,123 @@ public class ProductService {
             int page,
             int limit
     ) {
-        List<Product> all = productRepository.findAll();
-
-        List<Product> filtered = all.stream()
-                .filter(p -> search == null || p.getTitle().toLowerCase().contains(search.toLowerCase()))
-                .filter(p -> brands == null || brands.isEmpty() || brands.contains(p.getBrand()))
-                .filter(p -> categories == null || categories.isEmpty() || categories.contains(p.getCategory()))
-                .filter(p -> priceMin == null || p.getPrice() >= priceMin)
-                .filter(p -> priceMax == null || p.getPrice() <= priceMax)
-                .filter(p -> ratingMin == null || p.getRating() >= ratingMin)
-                .sorted((a, b) -> {
-                    if ("price-asc".equals(sort)) return Double.compare(a.getPrice(), b.getPrice());
-                    if ("price-desc".equals(sort)) return Double.compare(b.getPrice(), a.getPrice());
-                    if ("rating".equals(sort)) return Double.compare(b.getRating(), a.getRating());
-                    return 0;
-                })
-                .skip((long) (page - 1) * limit)
-                .limit(limit)
-                .collect(Collectors.toList());
+        if (useSearchIndex && searchIndex.isLoaded()) {
+            return searchIndex.filter(search, brands, categories, priceMin, priceMax, ratingMin, sort, page, limit);
+        }
+
+        // ✅ Database path: only the requested page is read, no count query
+        Specification<Product> spec = ProductSpecifications.matching(search, brands, categories, priceMin, priceMax, ratingMin);
+        PageRequest pageRequest = PageRequest.of(Math.max(page - 1, 0), Math.max(limit, 1));
+
+        return productRepository.findBy(spec, q -> q.sortBy(ProductSpecifications.sortFor(sort)).slice(pageRequest))
+                .map(this::convertToDTO)
+                .getContent();
+    }
+
+    // ✅ Keyset pagination: cost depends on page size, not on how deep the cursor is
+    public ProductPageDTO filterProductsAfter(
+            String search,
+            List<String> brands,
+            List<String> categories,
+            Double priceMin,
+            Double priceMax,
+            Double ratingMin,
+            String sort,
+            String cursor,
+            int limit
+    ) {
+        String sortKey = ProductSpecifications.sortColumn(sort) != null ? sort : "id";
+        Double afterValue = null;
+        String afterId = null;
+
+        if (cursor != null && !cursor.isBlank()) {
+            String[] parts = decodeCursor(cursor);
+            if (!parts[0].equals(sortKey)) {
+                throw new IllegalArgumentException("Cursor does not match sort order");
+            }
+            afterValue = parts[1].isEmpty() ? null : Double.valueOf(parts[1]);
+            afterId = parts[2];
+        }
+
+        int pageSize = Math.max(limit, 1);
+        Specification<Product> spec = ProductSpecifications.matching(search, brands, categories, priceMin, priceMax, ratingMin)
+                .and(ProductSpecifications.after(sort, afterValue, afterId));
+
+        List<Product> rows = productRepository.findBy(spec, q -> q
+                .sortBy(ProductSpecifications.sortFor(sort))
+                .limit(pageSize + 1)
+                .all());
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            nextCursor = encodeCursor(sortKey, rows.get(pageSize - 1));
+        }
+
+        return new ProductPageDTO(rows.stream().map(this::convertToDTO).collect(Collectors.toList()), nextCursor);
+    }
 
-        return filtered.stream().map(this::convertToDTO).collect(Collectors.toList());
+    // ✅ Resized thumbnails finished in the background: refresh the affected products' DTOs
+    @EventListener
+    public void onThumbnailVariantsReady(ImageVariantService.VariantsReadyEvent event) {
+        List<Product> products = productRepository.findByThumbnail(event.filename());
+        if (products.isEmpty()) return;
+        products.forEach(p -> searchIndex.put(convertToDTO(p)));
+        responseCache.bump();
+    }
+
+    // ✅ Brand/category/price/rating counts for the current filter, answered from the columnar snapshot
+    public ProductFacetsDTO getFacets(
+            String search,
+            List<String> brands,
+            List<String> categories,
+            Double priceMin,
+            Double priceMax,
+            Double ratingMin
+    ) {
+        if (!searchIndex.isLoaded()) {
+            loadSearchIndex();
+        }
+        return facetSnapshot.facets(search, brands, categories, priceMin, priceMax, ratingMin);
+    }
+
+    private String encodeCursor(String sortKey, Product last) {
+        String value = switch (sortKey) {
+            case "price-asc", "price-desc" -> String.valueOf(last.getPrice());
+            case "rating" -> String.valueOf(last.getRating());
+            default -> "";
+        };
+        String raw = sortKey + ":" + value + ":" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", 3);
+            if (parts.length != 3 || parts[2].isEmpty()) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            if (!parts[1].isEmpty()) {
+                Double.parseDouble(parts[1]);
+            }
+            return parts;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
     }
 
     public Product save(Product product) {
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        searchIndex.put(convertToDTO(saved));
+        responseCache.bump();
+        return saved;
     }
 
     public void delete(String id) {
         productRepository.deleteById(id);
+        searchIndex.remove(id);
+        responseCache.bump();
     }
 
     public Optional<Product> getById(String id) {
@@ -107,20 +246,107 @@ public class ProductService {
                 ? (thumbnail.startsWith("http") ? thumbnail : baseImageUrl + thumbnail)
                 : null);
 
+        if (thumbnail != null && !thumbnail.isBlank() && !thumbnail.startsWith("http")) {
+            Map<Integer, String> variants = new TreeMap<>();
+            imageVariantService.variantsFor(thumbnail).forEach((width, name) -> variants.put(width, baseImageUrl + name));
+            dto.setThumbnailVariants(variants);
+        }
+
         dto.setUpdatedAt(product.getUpdatedAt());
         return dto;
     }
 
-    // ✅ NEW: Decrement stock by quantity
-    public Product decrementStock(String productId, int decrementBy) {
-        Optional<Product> optionalProduct = getById(productId);
-        if (optionalProduct.isEmpty()) {
-            throw new IllegalArgumentException("Product not found");
+    // ✅ Single conditional UPDATE; false means there was not enough stock
+    public boolean decrementStock(String productId, int decrementBy) {
+        if (reservationService.isManaged(productId)) {
+            if (!reservationService.tryAcquire(productId, decrementBy)) return false;
+            reservationService.recordSale(productId, decrementBy);
+            return true;
         }
 
-        Product product = optionalProduct.get();
-        int newStock = Math.max(0, product.getStock() - decrementBy);
-        product.setStock(newStock);
-        return save(product);
+        int updated = productRepository.decrementStockIfAvailable(productId, decrementBy);
+        if (updated == 0) {
+            if (!productRepository.existsById(productId)) {
+                throw new IllegalArgumentException("Product not found");
+            }
+            return false;
+        }
+
+        TransactionCallbacks.afterCommit(() -> stockChanged(Map.of(productId, decrementBy)));
+        return true;
+    }
+
+    /**
+     * Decrements every product of an order in one JDBC batch inside one transaction.
+     * Returns the ids that did not have enough stock (or do not exist); when that
+     * list is non-empty the whole batch is rolled back.
+     */
+    @Transactional
+    public List<String> decrementStock(Map<String, Integer> quantities) {
+        // ✅ Flash-sale products come out of the in-memory counters, everything else out of MySQL
+        Map<String, Integer> inMemory = new HashMap<>();
+        List<Map.Entry<String, Integer>> lines = new ArrayList<>();
+        for (Map.Entry<String, Integer> line : quantities.entrySet()) {
+            if (reservationService.isManaged(line.getKey())) {
+                if (!reservationService.tryAcquire(line.getKey(), line.getValue())) {
+                    inMemory.forEach(reservationService::giveBack);
+                    TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                    return List.of(line.getKey());
+                }
+                inMemory.put(line.getKey(), line.getValue());
+            } else {
+                lines.add(line);
+            }
+        }
+        TransactionCallbacks.afterCommit(() -> inMemory.forEach(reservationService::recordSale));
+        TransactionCallbacks.afterRollback(() -> inMemory.forEach(reservationService::giveBack));
+        if (lines.isEmpty()) return Collections.emptyList();
+
+        int[] counts = jdbcTemplate.batchUpdate(
+                "UPDATE products SET stock = stock - ?, updated_at = NOW(6) WHERE id = ? AND stock >= ?",
+                lines,
+                lines.size(),
+                (ps, line) -> {
+                    ps.setInt(1, line.getValue());
+                    ps.setString(2, line.getKey());
+                    ps.setInt(3, line.getValue());
+                }
+        )[0];
+
+        List<String> failed = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) failed.add(lines.get(i).getKey());
+        }
+
+        if (!failed.isEmpty()) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return failed;
+        }
+
+        Map<String, Integer> applied = new HashMap<>();
+        lines.forEach(line -> applied.put(line.getKey(), line.getValue()));
+        TransactionCallbacks.afterCommit(() -> stockChanged(applied));
+        return failed;
+    }
+
+    // ✅ An admin set an absolute stock value; flash-sale counters must follow it
+    public void stockOverwritten(Product product) {
+        reservationService.restock(product.getId(), product.getStock());
+    }
+
+    // ✅ Keep the index and the listing cache in line with stock written by SQL; only a sell-out refreshes listings at once
+    private void stockChanged(Map<String, Integer> decrements) {
+        boolean soldOut = false;
+        for (Map.Entry<String, Integer> decrement : decrements.entrySet()) {
+            soldOut |= searchIndex.adjustStock(decrement.getKey(), -decrement.getValue()) == 0;
+        }
+        if (soldOut) responseCache.bump();
+        else responseCache.stockChanged();
+    }
+
+    // ✅ Current product view, served from the index when possible
+    public Optional<ProductDTO> findDTO(String productId) {
+        Optional<ProductDTO> cached = searchIndex.get(productId);
+        return cached.isPresent() ? cached : getById(productId).map(this::convertToDTO);
     }
 }
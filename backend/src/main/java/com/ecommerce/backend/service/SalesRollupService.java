@@ -0,0 +1,235 @@
+package com.ecommerce.backend.service;
+
+import com.ecommerce.backend.dto.SalesRollupDTO;
+import com.ecommerce.backend.entity.Item;
+import com.ecommerce.backend.entity.Order;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Maintains sales_rollups (day x category x payment method: orders, units,
+ * revenue) so dashboard queries never touch orders or items.
+ *
+ * Placed and cancelled orders are applied as +/- deltas with one batched
+ * upsert after their transaction commits. The upsert runs outside the checkout
+ * transaction on purpose: the rollup rows for a busy day are hot, and holding
+ * their locks until checkout commits would serialize checkouts. If a delta is
+ * ever lost, {@link #rebuild} recomputes any range set-based from the orders.
+ *
+ * A rebuild must not run between an order's commit and its delta, or the order
+ * is counted twice (and a delta applied mid-rebuild can be wiped). rebuildLock
+ * makes them exclusive on this node: an order transaction holds the read lock
+ * from just before its commit until its delta is applied, and a rebuild holds
+ * the write lock around its whole transaction, so order commits wait while a
+ * rebuild runs. Like the other in-memory coordination here, this assumes one
+ * node.
+ */
+@Service
+public class SalesRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SalesRollupService.class);
+
+    public static final String ALL_CATEGORIES = "*";
+    private static final String UNCATEGORIZED = "Uncategorized";
+    private static final String UNKNOWN_PAYMENT = "Unknown";
+
+    private static final String UPSERT =
+            "INSERT INTO sales_rollups (sales_day, category, payment_method, order_count, units, revenue) " +
+                    "VALUES (?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE " +
+                    "order_count = order_count + VALUES(order_count), units = units + VALUES(units), " +
+                    "revenue = revenue + VALUES(revenue)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final ReentrantReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+
+    private record Delta(LocalDate day, String category, String paymentMethod, long orders, long units, double revenue) {
+    }
+
+    public void orderPlaced(Order order) {
+        if ("Cancelled".equals(order.getStatus())) return;
+        applyAfterCommit(deltas(order, 1));
+    }
+
+    // ✅ Call before the status flips; the deltas are captured inside the cancelling transaction
+    public void orderCancelled(Order order) {
+        if ("Cancelled".equals(order.getStatus())) return;
+        applyAfterCommit(deltas(order, -1));
+    }
+
+    /**
+     * Recomputes the rollups for [from, to] (either bound may be null) from
+     * orders and items in one transaction. READ COMMITTED keeps the INSERT ...
+     * SELECT from share-locking orders, which a checkout parked on rebuildLock
+     * could be holding.
+     */
+    public int rebuild(LocalDate from, LocalDate to) {
+        TransactionTemplate readCommitted = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readCommitted.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        rebuildLock.writeLock().lock();
+        try {
+            return readCommitted.execute(tx -> recompute(from, to));
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+
+    private int recompute(LocalDate from, LocalDate to) {
+        List<Object> range = new ArrayList<>();
+        StringBuilder rollupRange = new StringBuilder();
+        StringBuilder orderRange = new StringBuilder();
+        if (from != null) {
+            rollupRange.append(" AND sales_day >= ?");
+            orderRange.append(" AND o.ordered_on >= ?");
+            range.add(from);
+        }
+        if (to != null) {
+            rollupRange.append(" AND sales_day <= ?");
+            orderRange.append(" AND o.ordered_on <= ?");
+            range.add(to);
+        }
+        Object[] args = range.toArray();
+
+        jdbcTemplate.update("DELETE FROM sales_rollups WHERE 1 = 1" + rollupRange, args);
+
+        String active = " WHERE o.ordered_on IS NOT NULL AND (o.status IS NULL OR o.status <> 'Cancelled')" + orderRange;
+        String payment = "COALESCE(NULLIF(o.payment_method, ''), '" + UNKNOWN_PAYMENT + "')";
+
+        int rows = jdbcTemplate.update(
+                "INSERT INTO sales_rollups (sales_day, category, payment_method, order_count, units, revenue) " +
+                        "SELECT o.ordered_on, LEFT(COALESCE(NULLIF(i.category, ''), '" + UNCATEGORIZED + "'), 100), " + payment + ", " +
+                        "COUNT(DISTINCT o.id), SUM(i.qty), SUM(i.price * i.qty) " +
+                        "FROM orders o JOIN items i ON i.order_id = o.id" + active + " GROUP BY 1, 2, 3", args);
+        rows += jdbcTemplate.update(
+                "INSERT INTO sales_rollups (sales_day, category, payment_method, order_count, units, revenue) " +
+                        "SELECT o.ordered_on, '" + ALL_CATEGORIES + "', " + payment + ", " +
+                        "COUNT(DISTINCT o.id), COALESCE(SUM(i.qty), 0), COALESCE(SUM(i.price * i.qty), 0) " +
+                        "FROM orders o LEFT JOIN items i ON i.order_id = o.id" + active + " GROUP BY 1, 3", args);
+
+        logger.info("Rebuilt {} sales rollup rows for {} .. {}", rows, from, to);
+        return rows;
+    }
+
+    /**
+     * Aggregates the rollups over [from, to]. groupBy is day, month, category
+     * or paymentMethod; category narrows every grouping except category.
+     */
+    public List<SalesRollupDTO> query(LocalDate from, LocalDate to, String groupBy, String category) {
+        String bucket;
+        switch (groupBy) {
+            case "day" -> bucket = "DATE_FORMAT(sales_day, '%Y-%m-%d')";
+            case "month" -> bucket = "DATE_FORMAT(sales_day, '%Y-%m')";
+            case "category" -> bucket = "category";
+            case "paymentMethod" -> bucket = "payment_method";
+            default -> throw new IllegalArgumentException("Unsupported groupBy: " + groupBy);
+        }
+
+        List<Object> args = new ArrayList<>(List.of(from, to));
+        String categoryFilter;
+        if ("category".equals(groupBy)) {
+            categoryFilter = " AND category <> ?";
+            args.add(ALL_CATEGORIES);
+        } else {
+            categoryFilter = " AND category = ?";
+            args.add(category != null && !category.isBlank() ? category : ALL_CATEGORIES);
+        }
+
+        return jdbcTemplate.query(
+                "SELECT " + bucket + " AS bucket, SUM(order_count) AS orders, SUM(units) AS units, SUM(revenue) AS revenue " +
+                        "FROM sales_rollups WHERE sales_day BETWEEN ? AND ?" + categoryFilter +
+                        " GROUP BY bucket ORDER BY bucket",
+                (rs, i) -> new SalesRollupDTO(rs.getString("bucket"), rs.getLong("orders"), rs.getLong("units"), rs.getDouble("revenue")),
+                args.toArray());
+    }
+
+    private List<Delta> deltas(Order order, int sign) {
+        LocalDate day = order.getOrderedOn() != null ? order.getOrderedOn() : OrderTimeline.parseDateOrNull(order.getOrderedDate());
+        if (day == null) return List.of();
+
+        String payment = order.getPaymentMethod() != null && !order.getPaymentMethod().isBlank()
+                ? order.getPaymentMethod() : UNKNOWN_PAYMENT;
+
+        Map<String, long[]> units = new TreeMap<>();
+        Map<String, Double> revenue = new HashMap<>();
+        long totalUnits = 0;
+        double totalRevenue = 0;
+        for (Item item : order.getItems() != null ? order.getItems() : List.<Item>of()) {
+            String category = item.getCategory() != null && !item.getCategory().isBlank() ? item.getCategory() : UNCATEGORIZED;
+            if (category.length() > 100) category = category.substring(0, 100);
+            units.computeIfAbsent(category, k -> new long[1])[0] += item.getQty();
+            revenue.merge(category, item.getPrice() * item.getQty(), Double::sum);
+            totalUnits += item.getQty();
+            totalRevenue += item.getPrice() * item.getQty();
+        }
+
+        // ✅ Sorted keys: concurrent upserts lock rows in the same order
+        List<Delta> deltas = new ArrayList<>();
+        deltas.add(new Delta(day, ALL_CATEGORIES, payment, sign, sign * totalUnits, sign * totalRevenue));
+        units.forEach((category, u) -> deltas.add(new Delta(day, category, payment, sign, sign * u[0], sign * revenue.get(category))));
+        return deltas;
+    }
+
+    // ✅ The read lock spans commit -> apply so a rebuild never sees the order without its delta or vice versa
+    private void applyAfterCommit(List<Delta> deltas) {
+        if (deltas.isEmpty()) return;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            rebuildLock.readLock().lock();
+            try {
+                apply(deltas);
+            } finally {
+                rebuildLock.readLock().unlock();
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean locked;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                rebuildLock.readLock().lock();
+                locked = true;
+            }
+
+            @Override
+            public void afterCommit() {
+                apply(deltas);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (locked) rebuildLock.readLock().unlock();
+            }
+        });
+    }
+
+    private void apply(List<Delta> deltas) {
+        try {
+            jdbcTemplate.batchUpdate(UPSERT, deltas, deltas.size(), (ps, d) -> {
+                ps.setObject(1, d.day());
+                ps.setString(2, d.category());
+                ps.setString(3, d.paymentMethod());
+                ps.setLong(4, d.orders());
+                ps.setLong(5, d.units());
+                ps.setDouble(6, d.revenue());
+            });
+        } catch (DataAccessException e) {
+            logger.error("Failed to apply sales rollup delta for {}; rebuild that day to repair", deltas.get(0).day(), e);
+        }
+    }
+}
@@ -0,0 +1,456 @@
+package com.ecommerce.backend.service;
+
+import com.ecommerce.backend.entity.Product;
+import com.ecommerce.backend.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opt-in flash-sale mode for hot products.
+ *
+ * While a product is managed here its available stock lives in striped
+ * in-memory counters instead of behind a MySQL row lock. Buyers reserve units
+ * (with a TTL), orders commit those reservations, and committed units are
+ * flushed to products.stock in batches on a short interval.
+ *
+ * Every reservation belongs to the user who made it: only that user can
+ * release it or claim it for an order, and a user can hold at most
+ * flash-sale.max-per-user units of a product (flash-sale.max-per-reservation
+ * per request), so nobody can park a sale's whole stock.
+ *
+ * The counters are per node, so flash-sale mode assumes a single application
+ * instance owns the product's stock. A flush that would take products.stock
+ * below zero is not applied and is logged as an oversell instead.
+ */
+@Service
+public class StockReservationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationService.class);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Autowired
+    private CatalogResponseCache responseCache;
+
+    @Value("${flash-sale.reservation-ttl-seconds:600}")
+    private long reservationTtlSeconds;
+
+    @Value("${flash-sale.stripes:0}")
+    private int configuredStripes;
+
+    @Value("${flash-sale.product-ids:}")
+    private List<String> startupProductIds;
+
+    @Value("${flash-sale.max-per-reservation:5}")
+    private int maxPerReservation;
+
+    @Value("${flash-sale.max-per-user:10}")
+    private int maxPerUser;
+
+    private final Map<String, StripedStock> managed = new ConcurrentHashMap<>();
+    private final Map<String, Reservation> reservations = new ConcurrentHashMap<>();
+
+    // ✅ "userId:productId" -> units held by that user's live reservations, updated atomically per key
+    private final Map<String, Integer> heldByUser = new ConcurrentHashMap<>();
+
+    // ✅ Serializes flushes with disable/restock so a drained batch never lands on top of an admin's stock write
+    private final Object flushLock = new Object();
+
+    public record Reservation(String id, UUID userId, String productId, int quantity, Instant expiresAt) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void enableConfiguredProducts() {
+        for (String productId : startupProductIds) {
+            if (!productId.isBlank()) enable(productId.trim());
+        }
+    }
+
+    public boolean isManaged(String productId) {
+        return managed.containsKey(productId);
+    }
+
+    // ✅ Seeds the counters from the current DB stock
+    public boolean enable(String productId) {
+        if (managed.containsKey(productId)) return true;
+
+        Optional<Product> product = productRepository.findById(productId);
+        if (product.isEmpty()) return false;
+
+        int stripes = configuredStripes > 0 ? configuredStripes : Runtime.getRuntime().availableProcessors();
+        managed.putIfAbsent(productId, new StripedStock(product.get().getStock(), stripes));
+        logger.info("Flash-sale mode enabled for product {} with stock {}", productId, product.get().getStock());
+        return true;
+    }
+
+    /**
+     * Flushes what was sold, then stops managing the product and drops its
+     * outstanding reservations. If the flush fails the product stays in
+     * flash-sale mode with its sales still pending, and the exception is thrown.
+     */
+    public void disable(String productId) {
+        synchronized (flushLock) {
+            StripedStock stock = managed.get(productId);
+            if (stock == null) return;
+
+            // ✅ From here on recordSale writes straight through instead of adding to pending
+            stock.retired = true;
+            long sold = stock.pending.sumThenReset();
+            try {
+                if (sold > 0) flushRows(List.of(Map.entry(productId, sold)));
+            } catch (RuntimeException e) {
+                stock.pending.add(sold);
+                stock.retired = false;
+                throw e;
+            }
+            managed.remove(productId, stock);
+        }
+        reservations.values().removeIf(r -> {
+            if (!r.productId().equals(productId)) return false;
+            unhold(r);
+            return true;
+        });
+        logger.info("Flash-sale mode disabled for product {}", productId);
+    }
+
+    /**
+     * Admin wrote an absolute stock value: counters follow it and unflushed
+     * sales are dropped. The value is written again under the flush lock, so a
+     * flush that drained sales before the admin's save cannot subtract them
+     * from the new value.
+     */
+    public void restock(String productId, int stock) {
+        synchronized (flushLock) {
+            StripedStock counters = managed.get(productId);
+            if (counters == null) return;
+
+            jdbcTemplate.update("UPDATE products SET stock = ?, updated_at = NOW(6) WHERE id = ?", stock, productId);
+            searchIndex.setStock(productId, stock);
+            responseCache.bump();
+
+            long reserved = reservations.values().stream()
+                    .filter(r -> r.productId().equals(productId))
+                    .mapToLong(Reservation::quantity)
+                    .sum();
+            counters.reset(Math.max(0, stock - reserved));
+        }
+    }
+
+    /**
+     * Holds units for a user. Throws IllegalArgumentException when the product
+     * is not in flash-sale mode or the request exceeds the per-reservation or
+     * per-user cap; returns empty when the stock is gone.
+     */
+    public Optional<Reservation> reserve(String productId, int quantity, UUID userId) {
+        StripedStock stock = managed.get(productId);
+        if (stock == null) {
+            throw new IllegalArgumentException("Product is not in flash-sale mode");
+        }
+        if (quantity > maxPerReservation) {
+            throw new IllegalArgumentException("At most " + maxPerReservation + " units per reservation");
+        }
+
+        String holder = holder(userId, productId);
+        boolean[] withinCap = {false};
+        heldByUser.compute(holder, (k, held) -> {
+            int current = held != null ? held : 0;
+            if (current + quantity > maxPerUser) return held;
+            withinCap[0] = true;
+            return current + quantity;
+        });
+        if (!withinCap[0]) {
+            throw new IllegalArgumentException("At most " + maxPerUser + " units of this product per user");
+        }
+        if (!stock.tryAcquire(quantity)) {
+            unhold(holder, quantity);
+            return Optional.empty();
+        }
+
+        Reservation reservation = new Reservation(UUID.randomUUID().toString(), userId, productId, quantity,
+                Instant.now().plusSeconds(reservationTtlSeconds));
+        reservations.put(reservation.id(), reservation);
+        return Optional.of(reservation);
+    }
+
+    // ✅ Someone else's reservation id is treated as unknown
+    public boolean release(String reservationId, UUID userId) {
+        Reservation reservation = reservations.get(reservationId);
+        if (reservation == null || !reservation.userId().equals(userId)) return false;
+        if (!reservations.remove(reservationId, reservation)) return false;
+        unhold(reservation);
+        giveBack(reservation.productId(), reservation.quantity());
+        return true;
+    }
+
+    /**
+     * Takes the user's reservations out of the TTL map for an order with the
+     * given {productId -> qty} lines. Returns null (and touches nothing) if any
+     * of them is unknown, expired, someone else's or for a product the order
+     * does not contain. Units reserved beyond what the order holds are given
+     * back, so each returned reservation carries only the quantity it covers.
+     */
+    public List<Reservation> claim(Collection<String> reservationIds, UUID userId, Map<String, Integer> ordered) {
+        Instant now = Instant.now();
+        List<Reservation> taken = new ArrayList<>();
+        for (String id : new LinkedHashSet<>(reservationIds)) {
+            Reservation reservation = reservations.get(id);
+            boolean valid = reservation != null
+                    && !reservation.expiresAt().isBefore(now)
+                    && reservation.userId().equals(userId)
+                    && ordered.getOrDefault(reservation.productId(), 0) > 0
+                    && reservations.remove(id, reservation);
+            if (!valid) {
+                taken.forEach(r -> reservations.put(r.id(), r));
+                return null;
+            }
+            taken.add(reservation);
+        }
+
+        Map<String, Integer> uncovered = new HashMap<>(ordered);
+        List<Reservation> claimed = new ArrayList<>();
+        for (Reservation reservation : taken) {
+            unhold(reservation);
+            int covers = Math.min(reservation.quantity(), uncovered.getOrDefault(reservation.productId(), 0));
+            uncovered.merge(reservation.productId(), -covers, Integer::sum);
+            if (covers < reservation.quantity()) {
+                giveBack(reservation.productId(), reservation.quantity() - covers);
+            }
+            if (covers > 0) {
+                claimed.add(new Reservation(reservation.id(), reservation.userId(), reservation.productId(), covers,
+                        reservation.expiresAt()));
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * claim() inside the order's transaction: the covered units become sales
+     * when it commits and go back to the counters if it rolls back.
+     */
+    public List<Reservation> claimForOrder(Collection<String> reservationIds, UUID userId, Map<String, Integer> ordered) {
+        List<Reservation> claimed = claim(reservationIds, userId, ordered);
+        if (claimed == null) return null;
+
+        TransactionCallbacks.afterCommit(() -> claimed.forEach(r -> recordSale(r.productId(), r.quantity())));
+        TransactionCallbacks.afterRollback(() -> claimed.forEach(r -> giveBack(r.productId(), r.quantity())));
+        return claimed;
+    }
+
+    // ✅ Direct decrement for managed products (no reservation step)
+    public boolean tryAcquire(String productId, int quantity) {
+        StripedStock stock = managed.get(productId);
+        return stock != null && stock.tryAcquire(quantity);
+    }
+
+    public void giveBack(String productId, int quantity) {
+        StripedStock stock = managed.get(productId);
+        if (stock != null) stock.release(quantity);
+    }
+
+    // ✅ Units are sold for good; they reach MySQL on the next flush
+    public void recordSale(String productId, int quantity) {
+        StripedStock stock = managed.get(productId);
+        if (stock == null) {
+            // Mode was switched off in between: write straight through
+            flushRows(List.of(Map.entry(productId, (long) quantity)));
+            return;
+        }
+
+        stock.pending.add(quantity);
+        if (stock.retired) {
+            // ✅ disable() may already have drained pending; whatever is left is written here
+            long sold = stock.pending.sumThenReset();
+            if (sold > 0) flushRows(List.of(Map.entry(productId, sold)));
+        }
+    }
+
+    public List<Map<String, Object>> stats() {
+        List<Map<String, Object>> stats = new ArrayList<>();
+        managed.forEach((productId, stock) -> {
+            long reserved = reservations.values().stream()
+                    .filter(r -> r.productId().equals(productId))
+                    .mapToLong(Reservation::quantity)
+                    .sum();
+            stats.add(Map.of(
+                    "productId", productId,
+                    "available", stock.available(),
+                    "reserved", reserved,
+                    "pendingFlush", stock.pending.sum(),
+                    "stripes", stock.shards.length
+            ));
+        });
+        return stats;
+    }
+
+    @Scheduled(fixedDelayString = "${flash-sale.flush-interval-ms:500}")
+    public void flushSales() {
+        if (!managed.isEmpty()) flush(managed);
+    }
+
+    @Scheduled(fixedDelay = 1000)
+    public void expireReservations() {
+        Instant now = Instant.now();
+        for (Reservation reservation : reservations.values()) {
+            if (reservation.expiresAt().isBefore(now) && reservations.remove(reservation.id(), reservation)) {
+                unhold(reservation);
+                giveBack(reservation.productId(), reservation.quantity());
+            }
+        }
+    }
+
+    private static String holder(UUID userId, String productId) {
+        return userId + ":" + productId;
+    }
+
+    private void unhold(Reservation reservation) {
+        unhold(holder(reservation.userId(), reservation.productId()), reservation.quantity());
+    }
+
+    private void unhold(String holder, int quantity) {
+        heldByUser.computeIfPresent(holder, (k, held) -> held > quantity ? held - quantity : null);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush(managed);
+    }
+
+    private void flush(Map<String, StripedStock> products) {
+        synchronized (flushLock) {
+            List<Map.Entry<String, Long>> rows = new ArrayList<>();
+            products.forEach((productId, stock) -> {
+                long sold = stock.pending.sumThenReset();
+                if (sold > 0) rows.add(Map.entry(productId, sold));
+            });
+            if (rows.isEmpty()) return;
+
+            try {
+                flushRows(rows);
+            } catch (RuntimeException e) {
+                // ✅ Keep the units so the next flush retries them
+                rows.forEach(row -> {
+                    StripedStock stock = products.get(row.getKey());
+                    if (stock != null) stock.pending.add(row.getValue());
+                });
+                logger.error("Failed to flush flash-sale stock, will retry", e);
+            }
+        }
+    }
+
+    private void flushRows(List<Map.Entry<String, Long>> rows) {
+        int[][] counts = jdbcTemplate.batchUpdate(
+                "UPDATE products SET stock = stock - ?, updated_at = NOW(6) WHERE id = ? AND stock >= ?",
+                rows,
+                rows.size(),
+                (ps, row) -> {
+                    ps.setLong(1, row.getValue());
+                    ps.setString(2, row.getKey());
+                    ps.setLong(3, row.getValue());
+                }
+        );
+
+        boolean soldOut = false;
+        for (int i = 0; i < rows.size(); i++) {
+            Map.Entry<String, Long> row = rows.get(i);
+            if (counts[0][i] == 0) {
+                // ✅ The DB has fewer units than were sold in memory: another writer took stock behind our counters
+                logger.error("⚠️ Oversold product {}: {} units sold in flash-sale mode exceed products.stock, stock left unchanged",
+                        row.getKey(), row.getValue());
+            } else {
+                soldOut |= searchIndex.adjustStock(row.getKey(), (int) -row.getValue()) == 0;
+            }
+        }
+        if (soldOut) responseCache.bump();
+        else responseCache.stockChanged();
+    }
+
+    /**
+     * Available units split across independent shards so concurrent buyers CAS
+     * different cache lines. A buyer starts at its own shard and walks the
+     * others; only when no single shard can cover the request are the shards
+     * drained and redistributed under a lock.
+     */
+    static final class StripedStock {
+        final AtomicLong[] shards;
+        final LongAdder pending = new LongAdder();
+        volatile boolean retired;
+
+        StripedStock(long initial, int stripes) {
+            shards = new AtomicLong[Math.max(1, stripes)];
+            for (int i = 0; i < shards.length; i++) shards[i] = new AtomicLong();
+            spread(initial);
+        }
+
+        boolean tryAcquire(int quantity) {
+            if (quantity <= 0) return false;
+
+            int start = home();
+            for (int i = 0; i < shards.length; i++) {
+                AtomicLong shard = shards[(start + i) % shards.length];
+                for (long current = shard.get(); current >= quantity; current = shard.get()) {
+                    if (shard.compareAndSet(current, current - quantity)) return true;
+                }
+            }
+            return reconcileAndAcquire(quantity);
+        }
+
+        void release(int quantity) {
+            shards[home()].addAndGet(quantity);
+        }
+
+        long available() {
+            long total = 0;
+            for (AtomicLong shard : shards) total += shard.get();
+            return total;
+        }
+
+        synchronized void reset(long stock) {
+            for (AtomicLong shard : shards) shard.set(0);
+            pending.reset();
+            spread(stock);
+        }
+
+        // ✅ Slow path: pool every shard, take the request if it fits, spread the rest again
+        private synchronized boolean reconcileAndAcquire(int quantity) {
+            long total = 0;
+            for (AtomicLong shard : shards) total += shard.getAndSet(0);
+
+            boolean acquired = total >= quantity;
+            spread(acquired ? total - quantity : total);
+            return acquired;
+        }
+
+        private void spread(long total) {
+            long share = total / shards.length;
+            long remainder = total % shards.length;
+            for (int i = 0; i < shards.length; i++) {
+                shards[i].addAndGet(share + (i < remainder ? 1 : 0));
+            }
+        }
+
+        private int home() {
+            return (int) (Thread.currentThread().getId() % shards.length);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.ecommerce.backend.service;
+
+import java.util.*;
+
+/**
+ * Hierarchical timing wheel keyed by an id.
+ *
+ * Level 0 has one slot per tick; each higher level covers a whole turn of the
+ * level below it per slot. Scheduling and cancelling are O(1); timers in a
+ * higher level are cascaded down when the lower wheel wraps. Deadlines past
+ * the top level's horizon are parked in its last slot and re-placed when
+ * they come round. Rescheduling a key replaces its previous timer.
+ */
+public final class TimingWheel<K> {
+
+    private static final class Timer<K> {
+        final K key;
+        final long deadlineTick;
+
+        Timer(K key, long deadlineTick) {
+            this.key = key;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+
+    private final long tickMillis;
+    private final int bits;
+    private final int mask;
+    private final List<List<Set<Timer<K>>>> levels = new ArrayList<>();
+    private final Map<K, Timer<K>> timers = new HashMap<>();
+    private final Map<K, Set<Timer<K>>> buckets = new HashMap<>();
+    // ✅ Insertion-ordered set, so cancel() removes a key in O(1)
+    private final Set<K> overdue = new LinkedHashSet<>();
+
+    private long currentTick;
+
+    // ✅ slotsPerLevel must be a power of two
+    public TimingWheel(long tickMillis, int slotsPerLevel, int levelCount, long startMillis) {
+        if (Integer.bitCount(slotsPerLevel) != 1) {
+            throw new IllegalArgumentException("slotsPerLevel must be a power of two");
+        }
+        this.tickMillis = tickMillis;
+        this.bits = Integer.numberOfTrailingZeros(slotsPerLevel);
+        this.mask = slotsPerLevel - 1;
+        for (int l = 0; l < levelCount; l++) {
+            List<Set<Timer<K>>> slots = new ArrayList<>(slotsPerLevel);
+            for (int s = 0; s < slotsPerLevel; s++) slots.add(new HashSet<>());
+            levels.add(slots);
+        }
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    public synchronized int size() {
+        return timers.size();
+    }
+
+    public synchronized void schedule(K key, long deadlineMillis) {
+        cancel(key);
+        long deadlineTick = Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis);
+        Timer<K> timer = new Timer<>(key, deadlineTick);
+        timers.put(key, timer);
+        place(timer);
+    }
+
+    public synchronized boolean cancel(K key) {
+        Timer<K> timer = timers.remove(key);
+        if (timer == null) return false;
+        Set<Timer<K>> bucket = buckets.remove(key);
+        if (bucket != null) bucket.remove(timer);
+        overdue.remove(key);
+        return true;
+    }
+
+    /**
+     * Moves the wheel up to {@code nowMillis} and returns the keys whose
+     * deadline has passed, removing them from the wheel.
+     */
+    public synchronized List<K> advance(long nowMillis) {
+        List<K> due = new ArrayList<>(overdue);
+        overdue.forEach(timers::remove);
+        overdue.clear();
+
+        long targetTick = nowMillis / tickMillis;
+        while (currentTick < targetTick) {
+            currentTick++;
+            // ✅ Cascade from the highest level whose lower wheel just wrapped
+            for (int l = levels.size() - 1; l >= 1; l--) {
+                if ((currentTick & ((1L << (bits * l)) - 1)) == 0) {
+                    drainAndReplace(levels.get(l).get((int) ((currentTick >>> (bits * l)) & mask)));
+                }
+            }
+
+            Set<Timer<K>> slot = levels.get(0).get((int) (currentTick & mask));
+            if (slot.isEmpty()) continue;
+            List<Timer<K>> fired = new ArrayList<>(slot);
+            slot.clear();
+            for (Timer<K> timer : fired) {
+                buckets.remove(timer.key);
+                if (timer.deadlineTick <= currentTick) {
+                    timers.remove(timer.key);
+                    due.add(timer.key);
+                } else {
+                    place(timer);
+                }
+            }
+        }
+        return due;
+    }
+
+    private void drainAndReplace(Set<Timer<K>> slot) {
+        if (slot.isEmpty()) return;
+        List<Timer<K>> moving = new ArrayList<>(slot);
+        slot.clear();
+        Set<Timer<K>> current = levels.get(0).get((int) (currentTick & mask));
+        for (Timer<K> timer : moving) {
+            buckets.remove(timer.key);
+            if (timer.deadlineTick <= currentTick) {
+                // ✅ Due this very tick: the level-0 slot is drained right after the cascade
+                current.add(timer);
+                buckets.put(timer.key, current);
+            } else {
+                place(timer);
+            }
+        }
+    }
+
+    private void place(Timer<K> timer) {
+        long delta = timer.deadlineTick - currentTick;
+        if (delta <= 0) {
+            overdue.add(timer.key);
+            return;
+        }
+
+        int top = levels.size() - 1;
+        int level = 0;
+        while (level < top && delta >= (1L << (bits * (level + 1)))) level++;
+
+        // ✅ Beyond the horizon: park in the farthest reachable top-level slot
+        long placedTick = delta >= (1L << (bits * (top + 1)))
+                ? currentTick + (1L << (bits * (top + 1))) - (1L << (bits * top))
+                : timer.deadlineTick;
+        Set<Timer<K>> slot = levels.get(level).get((int) ((placedTick >>> (bits * level)) & mask));
+        slot.add(timer);
+        buckets.put(timer.key, slot);
+    }
+}
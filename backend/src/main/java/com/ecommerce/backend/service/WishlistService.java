@@ -1,14 +1,12 @@
 package com.ecommerce.backend.service;
 
-import com.ecommerce.backend.entity.Product;
-import com.ecommerce.backend.entity.User;
+import com.ecommerce.backend.dto.WishlistProductDTO;
 import com.ecommerce.backend.entity.WishlistItem;
-import com.ecommerce.backend.repository.ProductRepository;
-import com.ecommerce.backend.repository.UserRepository;
 import com.ecommerce.backend.repository.WishlistItemRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -21,33 +19,23 @@ public class WishlistService {
     @Autowired
     private WishlistItemRepository wishlistRepo;
 
-    @Autowired
-    private UserRepository userRepo;
-
-    @Autowired
-    private ProductRepository productRepo;
-
     public List<WishlistItem> getWishlistByUser(UUID userId) {
         return wishlistRepo.findByUserId(userId);
     }
 
+    // ✅ Wishlist as DTOs from one joined query
+    public List<WishlistProductDTO> getWishlistView(UUID userId) {
+        return wishlistRepo.findWishlistViewByUserId(userId);
+    }
+
+    // ✅ One insert; adding a product that is already on the wishlist is a no-op
     public void addToWishlist(UUID userId, String productId) {
-        Optional<WishlistItem> existing = wishlistRepo.findByUserIdAndProductId(userId, productId);
-        if (existing.isPresent()) {
-            logger.info("Wishlist item already exists for user {} and product {}", userId, productId);
-            return;
+        try {
+            wishlistRepo.insertIfAbsent(UUID.randomUUID(), userId, productId);
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalArgumentException("User or product not found");
         }
-
-        User user = userRepo.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        Product product = productRepo.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found"));
-
-        WishlistItem item = new WishlistItem();
-        item.setUser(user);
-        item.setProduct(product);
-        wishlistRepo.save(item);
-        logger.info("Added product {} to wishlist for user {}", productId, userId);
+        logger.info("Product {} is on the wishlist of user {}", productId, userId);
     }
 
     public void removeFromWishlist(UUID userId, String productId) {
@@ -0,0 +1,107 @@
+package com.ecommerce.backend.repository;
+
+import com.ecommerce.backend.dto.CartProductDTO;
+import com.ecommerce.backend.dto.WishlistProductDTO;
+import com.ecommerce.backend.entity.CartItem;
+import com.ecommerce.backend.entity.Product;
+import com.ecommerce.backend.entity.User;
+import com.ecommerce.backend.entity.WishlistItem;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// ✅ Cart and wishlist views must stay one SQL statement however many lines there are
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class CartViewQueryTests {
+
+    private static final int LINES = 5;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private WishlistItemRepository wishlistItemRepository;
+
+    private UUID userId;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setUsername("cart-view");
+        user.setEmail("cart-view@example.com");
+        user.setPassword("secret");
+        entityManager.persist(user);
+        userId = user.getId();
+
+        for (int i = 0; i < LINES; i++) {
+            Product product = new Product();
+            product.setTitle("Product " + i);
+            product.setPrice(10 + i);
+            product.setDescription(("Description " + i + " ").repeat(40));
+            entityManager.persist(product);
+
+            CartItem cartItem = new CartItem();
+            cartItem.setUser(user);
+            cartItem.setProduct(product);
+            cartItem.setQuantity(i + 1);
+            entityManager.persist(cartItem);
+
+            WishlistItem wishlistItem = new WishlistItem();
+            wishlistItem.setUser(user);
+            wishlistItem.setProduct(product);
+            entityManager.persist(wishlistItem);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void cartViewIsOneStatement() {
+        Statistics statistics = statistics();
+
+        List<CartProductDTO> cart = cartItemRepository.findCartViewByUserId(userId);
+
+        assertEquals(LINES, cart.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(LINES * (LINES + 1) / 2, cart.stream().mapToInt(CartProductDTO::getQuantity).sum());
+        // ✅ Only a preview of the description is selected
+        cart.forEach(line -> assertEquals(160, line.getDescription().length()));
+    }
+
+    @Test
+    void wishlistViewIsOneStatement() {
+        Statistics statistics = statistics();
+
+        List<WishlistProductDTO> wishlist = wishlistItemRepository.findWishlistViewByUserId(userId);
+
+        assertEquals(LINES, wishlist.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(LINES, wishlist.stream().filter(p -> p.getTitle().startsWith("Product ")).count());
+        wishlist.forEach(p -> assertEquals(160, p.getDescription().length()));
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+}
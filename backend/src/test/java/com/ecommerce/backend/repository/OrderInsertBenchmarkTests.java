@@ -0,0 +1,97 @@
+package com.ecommerce.backend.repository;
+
+import com.ecommerce.backend.entity.Item;
+import com.ecommerce.backend.entity.Order;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Insert throughput for orders of 1, 10 and 100 items, skipped unless run with
+ * -Dbenchmark=true.
+ *
+ * Each size runs twice: with a JDBC batch size of 1, which reproduces the
+ * one-round-trip-per-row cost of the old IDENTITY mapping, and with the
+ * configured batch size. Every round is flushed and then rolled back.
+ */
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+        "spring.jpa.properties.hibernate.order_inserts=true",
+        "logging.level.org.hibernate.SQL=warn",
+        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=warn"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderInsertBenchmarkTests {
+
+    private static final int[] ITEM_COUNTS = {1, 10, 100};
+    private static final int ORDERS_PER_ROUND = Integer.getInteger("benchmark.orders", 200);
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void orderInserts() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        round(transactionTemplate, 10, 1); // ✅ Warm-up: connection pool, statement cache, id blocks
+        round(transactionTemplate, 10, null);
+        for (int items : ITEM_COUNTS) {
+            double rowByRow = round(transactionTemplate, items, 1);
+            double batched = round(transactionTemplate, items, null);
+            System.out.printf("Order inserts with %d items: %d orders/s row-by-row, %d orders/s batched (%.1fx)%n",
+                    items, Math.round(rowByRow), Math.round(batched), batched / rowByRow);
+        }
+    }
+
+    // ✅ batchSize null means the configured hibernate.jdbc.batch_size
+    private double round(TransactionTemplate transactionTemplate, int itemCount, Integer batchSize) {
+        long started = System.nanoTime();
+        transactionTemplate.executeWithoutResult(tx -> {
+            Session session = entityManager.unwrap(Session.class);
+            session.setJdbcBatchSize(batchSize);
+            for (int o = 0; o < ORDERS_PER_ROUND; o++) {
+                entityManager.persist(order(itemCount));
+            }
+            entityManager.flush();
+            entityManager.clear();
+            session.setJdbcBatchSize(null);
+            tx.setRollbackOnly();
+        });
+        double seconds = (System.nanoTime() - started) / 1e9;
+        return ORDERS_PER_ROUND / seconds;
+    }
+
+    private static Order order(int itemCount) {
+        Order order = new Order();
+        order.setStatus("Benchmark");
+        order.setPaymentMethod("Benchmark");
+        List<Item> items = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            Item item = new Item();
+            item.setProductId("benchmark");
+            item.setName("Benchmark item " + i);
+            item.setPrice(9.99);
+            item.setQty(1);
+            item.setOrder(order);
+            items.add(item);
+        }
+        order.setItems(items);
+        return order;
+    }
+}
@@ -0,0 +1,207 @@
+package com.ecommerce.backend.service;
+
+import com.ecommerce.backend.dto.CartProductDTO;
+import com.ecommerce.backend.repository.CartItemRepository;
+import com.ecommerce.backend.repository.ProductRepository;
+import com.ecommerce.backend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// ✅ Edits stay in memory and reach user_cart as coalesced batches; a fake JdbcTemplate plays the table
+class CartWriteBehindCacheTests {
+
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+
+    private FakeCartTable table;
+    private CartWriteBehindCache cache;
+
+    @BeforeEach
+    void setUp() {
+        table = new FakeCartTable();
+        cache = new CartWriteBehindCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxUsers", 10);
+        ReflectionTestUtils.setField(cache, "idleMillis", 600_000L);
+        ReflectionTestUtils.setField(cache, "jdbcTemplate", table);
+        ReflectionTestUtils.setField(cache, "transactionTemplate", new TransactionTemplate(table));
+        ReflectionTestUtils.setField(cache, "searchIndex", new ProductSearchIndex());
+        ReflectionTestUtils.setField(cache, "cartRepo", stub(CartItemRepository.class, "findCartViewByUserId",
+                args -> table.view((UUID) args[0])));
+        ReflectionTestUtils.setField(cache, "productRepo", stub(ProductRepository.class, "findCartLine",
+                args -> Optional.of(line((String) args[0], 0))));
+        ReflectionTestUtils.setField(cache, "userRepo", stub(UserRepository.class, "existsById", args -> true));
+    }
+
+    @Test
+    void editsToOneLineBetweenFlushesCostOneRowWrite() {
+        cache.add(alice, "p1", 1);
+        cache.add(alice, "p1", 2);
+        cache.set(alice, "p1", 5, false);
+        cache.add(alice, "p2", 1);
+        cache.remove(alice, List.of("p2"));
+
+        cache.flush();
+
+        assertEquals(List.of("delete p2", "upsert p1=5"), table.statements);
+        assertEquals(Map.of("p1", 5), table.rows(alice));
+
+        cache.flush();
+        assertEquals(2, table.statements.size()); // ✅ Nothing dirty, nothing written
+    }
+
+    @Test
+    void clearThenReAddRewritesOnlyTheNewLines() {
+        table.put(alice, "p1", 2);
+        table.put(alice, "p2", 1);
+
+        cache.clear(alice);
+        cache.add(alice, "p3", 1);
+        cache.add(alice, "p1", 4);
+        cache.flush();
+
+        assertEquals("clear", table.statements.get(0));
+        assertEquals(Set.of("upsert p3=1", "upsert p1=4"), new HashSet<>(table.statements.subList(1, table.statements.size())));
+        assertEquals(3, table.statements.size()); // ✅ The cleared lines need no per-line deletes
+        assertEquals(Map.of("p3", 1, "p1", 4), table.rows(alice));
+    }
+
+    @Test
+    void cartPushedOutOfTheLruKeepsItsEditsUntilFlushed() {
+        ReflectionTestUtils.setField(cache, "maxUsers", 1);
+        cache.add(alice, "p1", 2);
+        cache.view(bob); // ✅ Alice's dirty cart leaves the LRU
+        assertTrue(table.statements.isEmpty());
+
+        assertEquals(2, cache.view(alice).get(0).getQuantity()); // ✅ Comes back from the evicted map, not the table
+
+        cache.view(bob);
+        cache.flush();
+        assertEquals(Map.of("p1", 2), table.rows(alice));
+
+        table.put(alice, "p1", 7); // ✅ Flushed and dropped: the next read loads from user_cart
+        cache.view(bob);
+        assertEquals(7, cache.view(alice).get(0).getQuantity());
+    }
+
+    @Test
+    void lineRejectedByTheDatabaseIsDroppedAndTheRestIsWritten() {
+        table.rejected.add("deleted-product");
+        cache.add(alice, "p1", 1);
+        cache.add(alice, "deleted-product", 1);
+        cache.add(bob, "p2", 3);
+
+        cache.flush();
+
+        assertEquals(Map.of("p1", 1), table.rows(alice));
+        assertEquals(Map.of("p2", 3), table.rows(bob));
+        assertEquals(List.of("p1"), cache.view(alice).stream().map(CartProductDTO::getId).toList());
+
+        int written = table.statements.size();
+        cache.flush();
+        assertEquals(written, table.statements.size());
+    }
+
+    private static CartProductDTO line(String productId, int quantity) {
+        return new CartProductDTO(productId, productId, null, null, 10.0, quantity, "c", "b");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, String method, java.util.function.Function<Object[], Object> answer) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, m, args) -> {
+            if (m.getName().equals(method)) return answer.apply(args);
+            throw new UnsupportedOperationException(m.getName());
+        });
+    }
+
+    /**
+     * user_cart as a map, written through the three batch statements the cache
+     * issues. Writes are applied on commit and dropped on rollback; an upsert
+     * for a product in {@code rejected} fails like a foreign key violation.
+     */
+    private static final class FakeCartTable extends JdbcTemplate implements PlatformTransactionManager {
+        final Map<UUID, Map<String, Integer>> committed = new HashMap<>();
+        final List<String> statements = new ArrayList<>();
+        final Set<String> rejected = new HashSet<>();
+        private Map<UUID, Map<String, Integer>> working;
+        private List<String> workingStatements;
+
+        void put(UUID user, String productId, int quantity) {
+            committed.computeIfAbsent(user, u -> new LinkedHashMap<>()).put(productId, quantity);
+        }
+
+        Map<String, Integer> rows(UUID user) {
+            return committed.getOrDefault(user, Map.of());
+        }
+
+        List<CartProductDTO> view(UUID user) {
+            List<CartProductDTO> lines = new ArrayList<>();
+            rows(user).forEach((productId, quantity) -> lines.add(line(productId, quantity)));
+            return lines;
+        }
+
+        @Override
+        public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                       ParameterizedPreparedStatementSetter<T> pss) {
+            for (T arg : batchArgs) {
+                if (sql.startsWith("DELETE FROM user_cart WHERE user_id = ? AND")) {
+                    Object[] row = (Object[]) arg;
+                    working.computeIfAbsent(uuid((byte[]) row[0]), u -> new LinkedHashMap<>()).remove((String) row[1]);
+                    workingStatements.add("delete " + row[1]);
+                } else if (sql.startsWith("DELETE")) {
+                    working.remove(uuid((byte[]) arg));
+                    workingStatements.add("clear");
+                } else {
+                    Object[] row = (Object[]) arg;
+                    if (rejected.contains((String) row[2])) {
+                        throw new DataIntegrityViolationException("fk_user_cart_product");
+                    }
+                    working.computeIfAbsent(uuid((byte[]) row[1]), u -> new LinkedHashMap<>()).put((String) row[2], (Integer) row[3]);
+                    workingStatements.add("upsert " + row[2] + "=" + row[3]);
+                }
+            }
+            return new int[][]{new int[batchArgs.size()]};
+        }
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            working = new HashMap<>();
+            committed.forEach((user, rows) -> working.put(user, new LinkedHashMap<>(rows)));
+            workingStatements = new ArrayList<>();
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            committed.clear();
+            committed.putAll(working);
+            statements.addAll(workingStatements);
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+            working = null;
+            workingStatements = null;
+        }
+
+        private static UUID uuid(byte[] bytes) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            return new UUID(buffer.getLong(), buffer.getLong());
+        }
+    }
+}
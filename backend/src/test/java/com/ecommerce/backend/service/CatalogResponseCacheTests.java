@@ -0,0 +1,69 @@
+package com.ecommerce.backend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// ✅ Listing cache stays within its byte budget and folds stock-only changes into one refresh
+class CatalogResponseCacheTests {
+
+    private CatalogResponseCache cache;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        cache = new CatalogResponseCache();
+        ReflectionTestUtils.setField(cache, "maxBytes", 1600L);
+        ReflectionTestUtils.setField(cache, "stockRefreshMs", 60_000L);
+    }
+
+    private CatalogResponseCache.Entry load(String key, int bytes) {
+        long version = cache.version();
+        return cache.get(key, version, () -> {
+            loads.incrementAndGet();
+            return new CatalogResponseCache.Entry(version, new byte[bytes], null);
+        });
+    }
+
+    @Test
+    void servesCachedBodiesUntilTheByteBudgetIsExceeded() {
+        for (int i = 0; i < 16; i++) load("page" + i, 100);
+        for (int i = 0; i < 16; i++) load("page" + i, 100);
+        assertEquals(16, loads.get());
+
+        load("page16", 100); // ✅ Over budget: the cache starts over instead of growing
+        load("page0", 100);
+        assertEquals(18, loads.get());
+    }
+
+    @Test
+    void doesNotKeepBodiesLargerThanASixteenthOfTheBudget() {
+        load("huge", 101);
+        load("huge", 101);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void stockChangesWaitForTheRefreshWindowWhileOtherWritesBumpAtOnce() {
+        long before = cache.version();
+        load("page", 100);
+
+        cache.stockChanged();
+        assertEquals(before, cache.version());
+        load("page", 100);
+        assertEquals(1, loads.get());
+
+        ReflectionTestUtils.setField(cache, "stockRefreshMs", 0L);
+        assertEquals(before + 1, cache.version());
+        assertEquals(before + 1, cache.version()); // ✅ Pending stock changes bump once, not per read
+
+        cache.bump();
+        assertEquals(before + 2, cache.version());
+        load("page", 100);
+        assertEquals(2, loads.get());
+    }
+}
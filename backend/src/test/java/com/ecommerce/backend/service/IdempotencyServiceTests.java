@@ -0,0 +1,177 @@
+package com.ecommerce.backend.service;
+
+import com.ecommerce.backend.entity.Order;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// ✅ However many duplicates race, one order is placed and every caller gets its id
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import(IdempotencyService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdempotencyServiceTests {
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final AtomicInteger placed = new AtomicInteger();
+
+    @Test
+    void concurrentDuplicatesOnOneNodePlaceOneOrder() throws Exception {
+        String key = "same-node-" + UUID.randomUUID();
+        UUID userId = UUID.randomUUID();
+        int threads = 16;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<IdempotencyService.Result>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return idempotencyService.placeOnce(key, userId, slowOrder(50));
+                }));
+            }
+            start.countDown();
+
+            Set<Long> orderIds = new HashSet<>();
+            int fresh = 0;
+            for (Future<IdempotencyService.Result> f : results) {
+                IdempotencyService.Result result = f.get(30, TimeUnit.SECONDS);
+                orderIds.add(result.orderId());
+                if (!result.replayed()) fresh++;
+            }
+            assertEquals(1, placed.get());
+            assertEquals(1, fresh);
+            assertEquals(1, orderIds.size());
+            assertEquals(1, ordersWithKey(key));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void duplicateOnAnotherNodeWaitsOnTheKeyRowAndReplays() throws Exception {
+        String key = "two-nodes-" + UUID.randomUUID();
+        UUID userId = UUID.randomUUID();
+        // ✅ A second instance has its own empty LRU, like another node sharing the database
+        IdempotencyService otherNode = applicationContext.getAutowireCapableBeanFactory().createBean(IdempotencyService.class);
+
+        CountDownLatch keyRowWritten = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<IdempotencyService.Result> first = pool.submit(() -> idempotencyService.placeOnce(key, userId, () -> {
+                keyRowWritten.countDown(); // ✅ The supplier runs after the key row is flushed, still uncommitted
+                return slowOrder(300).get();
+            }));
+            Future<IdempotencyService.Result> second = pool.submit(() -> {
+                await(keyRowWritten);
+                return otherNode.placeOnce(key, userId, slowOrder(0));
+            });
+
+            IdempotencyService.Result a = first.get(30, TimeUnit.SECONDS);
+            IdempotencyService.Result b = second.get(30, TimeUnit.SECONDS);
+            assertFalse(a.replayed());
+            assertTrue(b.replayed());
+            assertEquals(a.orderId(), b.orderId());
+            assertEquals(1, placed.get());
+            assertEquals(1, ordersWithKey(key));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void laterRetriesAreAnsweredWithoutPlacingAgain() {
+        String key = "retry-" + UUID.randomUUID();
+        UUID userId = UUID.randomUUID();
+        IdempotencyService otherNode = applicationContext.getAutowireCapableBeanFactory().createBean(IdempotencyService.class);
+
+        IdempotencyService.Result original = idempotencyService.placeOnce(key, userId, slowOrder(0));
+        IdempotencyService.Result cached = idempotencyService.placeOnce(key, userId, slowOrder(0));
+        IdempotencyService.Result fromDb = otherNode.placeOnce(key, userId, slowOrder(0));
+
+        assertEquals(original.orderId(), cached.orderId());
+        assertEquals(original.orderId(), fromDb.orderId());
+        assertTrue(cached.replayed() && fromDb.replayed());
+        assertEquals(1, placed.get());
+    }
+
+    @Test
+    void aKeyBelongsToTheUserWhoFirstUsedIt() {
+        String key = "owner-" + UUID.randomUUID();
+        idempotencyService.placeOnce(key, UUID.randomUUID(), slowOrder(0));
+
+        assertThrows(IllegalStateException.class, () -> idempotencyService.placeOnce(key, UUID.randomUUID(), slowOrder(0)));
+        assertEquals(1, placed.get());
+    }
+
+    @Test
+    void aFailedAttemptLeavesTheKeyFree() {
+        String key = "failed-" + UUID.randomUUID();
+        UUID userId = UUID.randomUUID();
+
+        assertThrows(IllegalArgumentException.class, () -> idempotencyService.placeOnce(key, userId, () -> {
+            throw new IllegalArgumentException("Out of stock");
+        }));
+        IdempotencyService.Result retry = idempotencyService.placeOnce(key, userId, slowOrder(0));
+
+        assertFalse(retry.replayed());
+        assertEquals(1, ordersWithKey(key));
+    }
+
+    // ✅ Runs inside placeOnce's transaction, like OrderService.placeOrder
+    private Supplier<Order> slowOrder(long millis) {
+        return () -> {
+            placed.incrementAndGet();
+            if (millis > 0) {
+                try {
+                    Thread.sleep(millis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            Order order = new Order();
+            order.setStatus("Order Placed");
+            entityManager.persist(order);
+            entityManager.flush();
+            return order;
+        };
+    }
+
+    private int ordersWithKey(String key) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM orders o JOIN idempotency_keys k ON k.order_id = o.id WHERE k.idem_key = ?",
+                Integer.class, key);
+        return count != null ? count : 0;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
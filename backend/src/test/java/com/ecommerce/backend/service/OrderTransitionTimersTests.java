@@ -0,0 +1,86 @@
+package com.ecommerce.backend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// ✅ Real ticker at 10ms ticks: due orders reach the handler in one batch, cancelled ones never do
+class OrderTransitionTimersTests {
+
+    private OrderTransitionTimers timers;
+    private final BlockingQueue<List<Long>> batches = new LinkedBlockingQueue<>();
+
+    @BeforeEach
+    void setUp() {
+        timers = new OrderTransitionTimers();
+        ReflectionTestUtils.setField(timers, "tickMillis", 10L);
+        timers.init();
+        timers.onDue(batches::add);
+    }
+
+    @AfterEach
+    void tearDown() {
+        timers.shutdown();
+    }
+
+    @Test
+    void ordersDueTogetherArriveAsOneBatch() throws InterruptedException {
+        Instant dueAt = Instant.now().plusMillis(100);
+        timers.scheduleAll(Map.of(1L, dueAt, 2L, dueAt, 3L, dueAt));
+        assertEquals(3, timers.pending());
+
+        List<Long> batch = batches.poll(2, TimeUnit.SECONDS);
+        assertNotNull(batch);
+        assertEquals(3, batch.size());
+        assertTrue(batch.containsAll(List.of(1L, 2L, 3L)));
+        assertEquals(0, timers.pending());
+    }
+
+    @Test
+    void neverFiresBeforeTheDeadline() throws InterruptedException {
+        long start = System.currentTimeMillis();
+        timers.schedule(7L, Instant.ofEpochMilli(start + 200));
+
+        List<Long> batch = batches.poll(2, TimeUnit.SECONDS);
+        assertEquals(List.of(7L), batch);
+        assertTrue(System.currentTimeMillis() - start >= 200);
+    }
+
+    @Test
+    void cancelledAndClearedOrdersNeverFire() throws InterruptedException {
+        Instant dueAt = Instant.now().plusMillis(50);
+        timers.schedule(1L, dueAt);
+        timers.schedule(2L, dueAt);
+        timers.schedule(3L, dueAt);
+        timers.cancel(1L);
+        timers.schedule(2L, null); // ✅ A null due time (terminal status) cancels
+
+        assertEquals(List.of(3L), batches.poll(2, TimeUnit.SECONDS));
+        assertNull(batches.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void aFailingHandlerDoesNotStopTheTicker() throws InterruptedException {
+        timers.onDue(due -> {
+            if (due.contains(1L)) throw new IllegalStateException("boom");
+            batches.add(due);
+        });
+        timers.schedule(1L, Instant.now().plusMillis(20));
+        timers.schedule(2L, Instant.now().plusMillis(300));
+
+        assertEquals(List.of(2L), batches.poll(2, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,122 @@
+package com.ecommerce.backend.service;
+
+import com.ecommerce.backend.dto.ProductDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// ✅ Quotes come from the resident price snapshot: per-line cents, clamped discounts, flat shipping and tax
+class PricingEngineTests {
+
+    private ProductSearchIndex searchIndex;
+    private PricingEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        searchIndex = new ProductSearchIndex();
+        searchIndex.rebuild(List.of(
+                product("third", 0.333, 10),
+                product("third-b", 0.333, 10),
+                product("third-c", 0.333, 10),
+                product("over", 20.0, 150),
+                product("under", 20.0, -20),
+                product("plain", 9.99, 0)));
+
+        PriceSnapshot snapshot = new PriceSnapshot();
+        ReflectionTestUtils.setField(snapshot, "searchIndex", searchIndex);
+
+        engine = new PricingEngine();
+        ReflectionTestUtils.setField(engine, "priceSnapshot", snapshot);
+        ReflectionTestUtils.setField(engine, "shippingFlat", 3.99);
+        ReflectionTestUtils.setField(engine, "taxFlat", 2.0);
+        ReflectionTestUtils.setField(engine, "taxRate", 0.1);
+    }
+
+    @Test
+    void roundsEachLineToCentsAndTotalsTheRoundedLines() {
+        PricingEngine.Quote quote = engine.quote(quantities("third", 1, "third-b", 1, "third-c", 1));
+
+        for (PricingEngine.Line line : quote.lines()) {
+            assertEquals(0.33, line.subtotal());
+            assertEquals(0.03, line.discount());
+            assertEquals(0.30, line.total());
+        }
+        // ✅ Sum of rounded lines (0.99 / 0.09), not the rounded sum of raw amounts (1.00 / 0.10)
+        assertEquals(0.99, quote.subtotal());
+        assertEquals(0.09, quote.discount());
+        assertEquals(2.09, quote.tax()); // 2.0 + 0.90 x 0.1
+        assertEquals(6.98, quote.total()); // 0.90 + 3.99 + 2.09
+    }
+
+    @Test
+    void clampsDiscountsToZeroThroughOneHundredPercent() {
+        PricingEngine.Quote quote = engine.quote(quantities("over", 2, "under", 1));
+
+        assertEquals(100, quote.line("over").discountPercentage());
+        assertEquals(0, quote.line("over").total());
+        assertEquals(0, quote.line("under").discountPercentage());
+        assertEquals(20.0, quote.line("under").total());
+        assertEquals(60.0, quote.subtotal());
+        assertEquals(40.0, quote.discount());
+    }
+
+    @Test
+    void reportsMissingProductsWithoutPricingThem() {
+        PricingEngine.Quote quote = engine.quote(quantities("plain", 2, "gone", 5));
+
+        assertEquals(List.of("gone"), quote.missing());
+        assertEquals(1, quote.lines().size());
+        assertNull(quote.line("gone"));
+        assertEquals(19.98, quote.subtotal());
+    }
+
+    @Test
+    void emptyCartCostsNothing() {
+        PricingEngine.Quote quote = engine.quote(Map.of());
+
+        assertTrue(quote.lines().isEmpty());
+        assertEquals(0, quote.shipping());
+        assertEquals(0, quote.tax());
+        assertEquals(0, quote.total());
+
+        // ✅ Only missing products is still an empty cart
+        assertEquals(0, engine.quote(Map.of("gone", 1)).total());
+    }
+
+    @Test
+    void snapshotIsRebuiltWhenTheCatalogVersionMovesButNotForStock() {
+        PricingEngine.Quote before = engine.quote(Map.of("plain", 1));
+
+        searchIndex.adjustStock("plain", -3);
+        assertEquals(before.priceVersion(), engine.quote(Map.of("plain", 1)).priceVersion());
+
+        searchIndex.put(product("plain", 12.50, 0));
+        PricingEngine.Quote after = engine.quote(Map.of("plain", 1));
+        assertNotEquals(before.priceVersion(), after.priceVersion());
+        assertEquals(12.50, after.line("plain").unitPrice());
+    }
+
+    private static Map<String, Integer> quantities(Object... pairs) {
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            quantities.put((String) pairs[i], (Integer) pairs[i + 1]);
+        }
+        return quantities;
+    }
+
+    private static ProductDTO product(String id, double price, double discountPercentage) {
+        ProductDTO dto = new ProductDTO();
+        dto.setId(id);
+        dto.setTitle(id);
+        dto.setPrice(price);
+        dto.setStock(10);
+        dto.setDiscountPercentage(discountPercentage);
+        return dto;
+    }
+}
@@ -0,0 +1,82 @@
+package com.ecommerce.backend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// ✅ Reservations are owned, capped, and claimed only for units the order actually holds
+class StockReservationServiceTests {
+
+    private static final String PRODUCT = "p1";
+
+    private StockReservationService service;
+    private StockReservationService.StripedStock stock;
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        service = new StockReservationService();
+        ReflectionTestUtils.setField(service, "reservationTtlSeconds", 600L);
+        ReflectionTestUtils.setField(service, "maxPerReservation", 5);
+        ReflectionTestUtils.setField(service, "maxPerUser", 8);
+        stock = new StockReservationService.StripedStock(100, 4);
+        ((Map<String, StockReservationService.StripedStock>) ReflectionTestUtils.getField(service, "managed")).put(PRODUCT, stock);
+    }
+
+    @Test
+    void capsUnitsPerReservationAndPerUser() {
+        assertThrows(IllegalArgumentException.class, () -> service.reserve(PRODUCT, 6, alice));
+        assertTrue(service.reserve(PRODUCT, 5, alice).isPresent());
+        assertThrows(IllegalArgumentException.class, () -> service.reserve(PRODUCT, 4, alice));
+        assertTrue(service.reserve(PRODUCT, 3, alice).isPresent());
+        assertTrue(service.reserve(PRODUCT, 5, bob).isPresent()); // ✅ The cap is per user
+        assertEquals(87, stock.available());
+    }
+
+    @Test
+    void onlyTheOwnerCanReleaseAndReleasingFreesTheCap() {
+        StockReservationService.Reservation held = service.reserve(PRODUCT, 5, alice).orElseThrow();
+        service.reserve(PRODUCT, 3, alice).orElseThrow();
+
+        assertFalse(service.release(held.id(), bob));
+        assertEquals(92, stock.available());
+        assertTrue(service.release(held.id(), alice));
+        assertEquals(97, stock.available());
+        assertTrue(service.reserve(PRODUCT, 5, alice).isPresent());
+    }
+
+    @Test
+    void claimRejectsForeignReservationsAndProductsNotInTheOrder() {
+        StockReservationService.Reservation held = service.reserve(PRODUCT, 2, alice).orElseThrow();
+
+        assertNull(service.claim(List.of(held.id()), bob, Map.of(PRODUCT, 2)));
+        assertNull(service.claim(List.of(held.id()), alice, Map.of("other", 2)));
+        // ✅ Rejected claims leave the reservation in place for its owner
+        List<StockReservationService.Reservation> claimed = service.claim(List.of(held.id()), alice, Map.of(PRODUCT, 2));
+        assertEquals(1, claimed.size());
+        assertEquals(2, claimed.get(0).quantity());
+        assertNull(service.claim(List.of(held.id()), alice, Map.of(PRODUCT, 2)));
+    }
+
+    @Test
+    void claimCoversOnlyWhatTheOrderHoldsAndGivesBackTheRest() {
+        StockReservationService.Reservation first = service.reserve(PRODUCT, 5, alice).orElseThrow();
+        StockReservationService.Reservation second = service.reserve(PRODUCT, 3, alice).orElseThrow();
+        assertEquals(92, stock.available());
+
+        List<StockReservationService.Reservation> claimed =
+                service.claim(List.of(first.id(), second.id()), alice, Map.of(PRODUCT, 6));
+
+        assertEquals(6, claimed.stream().mapToInt(StockReservationService.Reservation::quantity).sum());
+        assertEquals(94, stock.available());
+        assertTrue(service.reserve(PRODUCT, 5, alice).isPresent()); // ✅ Claimed units no longer count against the cap
+    }
+}
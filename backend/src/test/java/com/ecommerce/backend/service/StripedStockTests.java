@@ -0,0 +1,134 @@
+package com.ecommerce.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// ✅ Shard reconciliation must never lose, duplicate or oversell a unit
+class StripedStockTests {
+
+    @Test
+    void spreadsTheInitialStockAcrossShards() {
+        StockReservationService.StripedStock stock = new StockReservationService.StripedStock(10, 4);
+
+        assertEquals(10, stock.available());
+        for (AtomicLong shard : stock.shards) {
+            assertTrue(shard.get() == 2 || shard.get() == 3);
+        }
+    }
+
+    @Test
+    void pullsFromOtherShardsWhenNoSingleShardIsEnough() {
+        StockReservationService.StripedStock stock = new StockReservationService.StripedStock(10, 4);
+
+        assertTrue(stock.tryAcquire(7)); // ✅ No shard holds more than 3, so this needs the reconcile path
+        assertEquals(3, stock.available());
+        assertTrue(stock.tryAcquire(3));
+        assertEquals(0, stock.available());
+        assertFalse(stock.tryAcquire(1));
+    }
+
+    @Test
+    void aFailedAcquireLeavesTheStockIntact() {
+        StockReservationService.StripedStock stock = new StockReservationService.StripedStock(5, 8);
+
+        assertFalse(stock.tryAcquire(6));
+        assertFalse(stock.tryAcquire(0));
+        assertEquals(5, stock.available());
+        assertTrue(stock.tryAcquire(5));
+    }
+
+    @Test
+    void releaseAndResetMoveTheTotal() {
+        StockReservationService.StripedStock stock = new StockReservationService.StripedStock(4, 4);
+
+        assertTrue(stock.tryAcquire(4));
+        stock.release(3);
+        assertEquals(3, stock.available());
+
+        stock.pending.add(2);
+        stock.reset(20);
+        assertEquals(20, stock.available());
+        assertEquals(0, stock.pending.sum());
+    }
+
+    @Test
+    void concurrentBuyersSellExactlyTheStock() throws Exception {
+        int initial = 10_000;
+        int threads = 16;
+        StockReservationService.StripedStock stock = new StockReservationService.StripedStock(initial, 8);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Long>> sold = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int quantity = 1 + t % 3;
+                sold.add(pool.submit(() -> {
+                    start.await();
+                    long units = 0;
+                    int misses = 0;
+                    while (misses < 100) { // ✅ Several misses in a row: the stock is really gone
+                        if (stock.tryAcquire(quantity)) {
+                            units += quantity;
+                            misses = 0;
+                        } else {
+                            misses++;
+                        }
+                    }
+                    return units;
+                }));
+            }
+            start.countDown();
+
+            long total = 0;
+            for (Future<Long> f : sold) total += f.get(30, TimeUnit.SECONDS);
+            assertEquals(initial, total + stock.available());
+            assertTrue(stock.available() < 3, "left " + stock.available());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void concurrentHoldsAndReleasesKeepTheTotal() throws Exception {
+        int initial = 500;
+        int threads = 12;
+        StockReservationService.StripedStock stock = new StockReservationService.StripedStock(initial, 4);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Long>> held = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                held.add(pool.submit(() -> {
+                    start.await();
+                    long units = 0;
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 20_000; i++) {
+                        int quantity = 1 + random.nextInt(5);
+                        if (units >= quantity && random.nextBoolean()) {
+                            stock.release(quantity);
+                            units -= quantity;
+                        } else if (stock.tryAcquire(quantity)) {
+                            units += quantity;
+                        }
+                    }
+                    return units;
+                }));
+            }
+            start.countDown();
+
+            long total = 0;
+            for (Future<Long> f : held) total += f.get(30, TimeUnit.SECONDS);
+            assertEquals(initial, total + stock.available());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.ecommerce.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// ✅ Small wheels (4 slots x 2 levels = 16-tick horizon) so cascades and overflow happen within a few ticks
+class TimingWheelTests {
+
+    private static final long TICK = 10;
+
+    @Test
+    void firesOnTheTickOfItsDeadline() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 4, 2, 0);
+        wheel.schedule("a", 3 * TICK);
+
+        assertEquals(List.of(), wheel.advance(2 * TICK));
+        assertEquals(List.of("a"), wheel.advance(3 * TICK));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cascadesFromTheUpperLevelWithoutFiringEarly() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 4, 2, 0);
+        wheel.schedule("a", 6 * TICK);  // level 1, cascaded down when tick 4 wraps level 0
+        wheel.schedule("b", 13 * TICK);
+
+        for (long tick = 1; tick <= 16; tick++) {
+            List<String> due = wheel.advance(tick * TICK);
+            if (tick == 6) assertEquals(List.of("a"), due);
+            else if (tick == 13) assertEquals(List.of("b"), due);
+            else assertEquals(List.of(), due, "tick " + tick);
+        }
+    }
+
+    @Test
+    void deadlinesPastTheHorizonAreParkedAndFireOnTime() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 4, 2, 0);
+        wheel.schedule("far", 100 * TICK);
+
+        for (long tick = 1; tick < 100; tick++) {
+            assertEquals(List.of(), wheel.advance(tick * TICK), "tick " + tick);
+        }
+        assertEquals(List.of("far"), wheel.advance(100 * TICK));
+    }
+
+    @Test
+    void rescheduleReplacesAndCancelRemoves() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 4, 2, 0);
+        wheel.schedule("a", 2 * TICK);
+        wheel.schedule("a", 9 * TICK);
+        wheel.schedule("b", 5 * TICK);
+
+        assertTrue(wheel.cancel("b"));
+        assertFalse(wheel.cancel("b"));
+        assertEquals(1, wheel.size());
+        assertEquals(List.of(), wheel.advance(8 * TICK));
+        assertEquals(List.of("a"), wheel.advance(9 * TICK));
+    }
+
+    @Test
+    void pastDeadlinesFireOnTheNextAdvance() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 4, 2, 50 * TICK);
+        wheel.schedule("late", 10 * TICK);
+
+        assertEquals(List.of("late"), wheel.advance(50 * TICK));
+    }
+
+    @Test
+    void matchesABruteForceScheduleAcrossJumps() {
+        Random random = new Random(42);
+        TimingWheel<Integer> wheel = new TimingWheel<>(TICK, 4, 3, 0);
+        Map<Integer, Long> deadlines = new HashMap<>();
+        long now = 0;
+
+        for (int step = 0; step < 2000; step++) {
+            for (int i = 0; i < 3; i++) {
+                int key = random.nextInt(200);
+                long deadline = now + random.nextInt(300 * (int) TICK); // up to ~5 horizons out, not tick-aligned
+                wheel.schedule(key, deadline);
+                deadlines.put(key, deadline);
+            }
+            if (random.nextInt(4) == 0) {
+                int key = random.nextInt(200);
+                assertEquals(deadlines.remove(key) != null, wheel.cancel(key));
+            }
+
+            now += random.nextInt(4) == 0 ? random.nextInt(40) * TICK : TICK; // mostly single ticks, some big jumps
+            long nowTick = now / TICK;
+            Set<Integer> expected = new HashSet<>();
+            for (Iterator<Map.Entry<Integer, Long>> it = deadlines.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<Integer, Long> entry = it.next();
+                long deadlineTick = Math.floorDiv(entry.getValue() + TICK - 1, TICK);
+                if (deadlineTick <= nowTick) {
+                    expected.add(entry.getKey());
+                    it.remove();
+                }
+            }
+
+            List<Integer> due = wheel.advance(now);
+            assertEquals(expected, new HashSet<>(due), "at " + now);
+            assertEquals(expected.size(), due.size());
+            assertEquals(deadlines.size(), wheel.size());
+        }
+    }
+}
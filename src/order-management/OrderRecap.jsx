@@ -76,6 +76,12 @@ export default function OrderRecap({
             <span>Subtotal</span>
             <span>₹{orderData.subtotal?.toFixed(2)}</span>
           </div>
+          {orderData.discount > 0 && (
+            <div className="o-price-row">
+              <span>Discount</span>
+              <span>−₹{orderData.discount.toFixed(2)}</span>
+            </div>
+          )}
           <div className="o-price-row">
             <span>Shipping</span>
             <span>₹{orderData.shipping?.toFixed(2)}</span>
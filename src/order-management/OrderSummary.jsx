@@ -13,7 +13,7 @@ export default function OrderSummary({
   showDateDropdown,
   setShowDateDropdown,
   cartItems,
-  calcSubtotal,
+  quote,
   onProceed
 }) {
   const selectedAddress = addresses.find(a => a.id === selectedAddressId);
@@ -28,10 +28,12 @@ export default function OrderSummary({
   const hasChangedDate = !isDefaultDate;
   const dropdownDates = hasChangedDate ? availableDates : availableDates.slice(1);
 
-  const subtotal = calcSubtotal();
-  const shipping = cartItems.length > 0 ? 3.99 : 0;
-  const tax = cartItems.length > 0 ? 2.0 : 0;
-  const total = subtotal + shipping + tax;
+  // ✅ Server quote; the proceed button waits for it so payment shows the amount checkout will charge
+  const subtotal = quote?.subtotal ?? 0;
+  const discount = quote?.discount ?? 0;
+  const shipping = quote?.shipping ?? 0;
+  const tax = quote?.tax ?? 0;
+  const total = quote?.total ?? 0;
 
   return (
     <>
@@ -112,6 +114,12 @@ export default function OrderSummary({
             <span>Subtotal</span>
             <span>₹{subtotal.toFixed(2)}</span>
           </div>
+          {discount > 0 && (
+            <div className="o-summary-row">
+              <span>Discount</span>
+              <span>−₹{discount.toFixed(2)}</span>
+            </div>
+          )}
           <div className="o-summary-row">
             <span>Shipping</span>
             <span>₹{shipping.toFixed(2)}</span>
@@ -130,13 +138,15 @@ export default function OrderSummary({
       <button
         className="o-proceed-btn"
         onClick={onProceed}
-        disabled={!selectedAddressId || !selectedDate}
-        aria-disabled={!selectedAddressId || !selectedDate}
+        disabled={!selectedAddressId || !selectedDate || !quote}
+        aria-disabled={!selectedAddressId || !selectedDate || !quote}
         title={
           !selectedAddressId
             ? "Please select a delivery address"
             : !selectedDate
             ? "Please select a delivery date"
+            : !quote
+            ? "Calculating your total"
             : "Proceed to payment"
         }
       >
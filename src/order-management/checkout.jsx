@@ -5,6 +5,7 @@ import AddressList from "./AddressList";
 import OrderSummary from "./OrderSummary";
 import { toast } from "react-hot-toast";
 import { useAuth } from "../user-authentication/context/AuthContext";
+import { useCartQuote } from "./useCartQuote";
 
 export default function Checkout() {
   const navigate = useNavigate();
@@ -14,6 +15,7 @@ export default function Checkout() {
   const { token } = useAuth();
   const cartItems = location.state?.cartItems || [];
   const userId = location.state?.userId;
+  const quote = useCartQuote(cartItems);
 
   const [addresses, setAddresses] = useState([]);
   const [selectedAddressId, setSelectedAddressId] = useState(null);
@@ -81,13 +83,6 @@ export default function Checkout() {
     }
   }, [selectedAddressId]);
 
-  function calcSubtotal() {
-    return cartItems.reduce(
-      (s, it) => s + (it.price || 0) * (it.qty || 1),
-      0
-    );
-  }
-
   async function handleAddAddress(e) {
     e.preventDefault();
 
@@ -139,11 +134,10 @@ export default function Checkout() {
 
   function handleProceed() {
   const selected = addresses.find((a) => a.id === selectedAddressId) || null;
+  if (!quote) return;
 
-  const subtotal = calcSubtotal();
-  const shipping = cartItems.length > 0 ? 3.99 : 0;
-  const tax = cartItems.length > 0 ? 2.0 : 0;
-  const total = subtotal + shipping + tax;
+  // ✅ The backend rejects a checkout whose total differs from its own quote
+  const { subtotal, discount, shipping, tax, total } = quote;
 
   // ✅ Transform cartItems to include productId and snapshot fields
   const items = cartItems.map(item => ({
@@ -163,6 +157,7 @@ export default function Checkout() {
     userId,
     items,
     subtotal,
+    discount,
     shipping,
     tax,
     total,
@@ -221,7 +216,7 @@ export default function Checkout() {
             showDateDropdown={showDateDropdown}
             setShowDateDropdown={setShowDateDropdown}
             cartItems={cartItems}
-            calcSubtotal={calcSubtotal}
+            quote={quote}
             onProceed={handleProceed}
           />
         </div>
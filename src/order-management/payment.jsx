@@ -13,7 +13,7 @@ export default function Payment() {
   const navigate = useNavigate();
   const location = useLocation();
   const { token } = useAuth();
-  const { removeMultipleFromCart } = useCart(); // ✅ NEW
+  const { fetchUserCart } = useCart();
   const orderData = location.state?.orderData;
 
   const [paymentDetails, setPaymentDetails] = useState([]);
@@ -177,7 +177,8 @@ export default function Payment() {
     console.log("Payload being sent:", payload);
 
     try {
-      const res = await fetch(`${API_BASE}/orders`, {
+      // ✅ One call: the backend checks prices, takes stock, places the order and clears these cart lines
+      const res = await fetch(`${API_BASE}/checkout`, {
         method: "POST",
         headers: {
           "Content-Type": "application/json",
@@ -186,26 +187,17 @@ export default function Payment() {
         body: JSON.stringify(payload)
       });
 
+      if (res.status === 409) {
+        // ✅ Prices or totals moved since the quote; send the buyer back to review them
+        const body = await res.json().catch(() => ({}));
+        toast.error(`${body.error || "Prices changed"}. Please review your cart.`);
+        navigate("/cart");
+        return;
+      }
       if (!res.ok) throw new Error("Order failed");
       const orderId = await res.json();
 
-      // ✅ Remove ordered items from cart
-      const productIdsToRemove = transformedItems.map(item => item.productId);
-      await removeMultipleFromCart(productIdsToRemove);
-
-      // ✅ Decrement stock for each product
-      await Promise.all(
-        transformedItems.map(item =>
-          fetch(`${API_BASE}/products/${item.productId}/decrement`, {
-            method: "PATCH",
-            headers: {
-              "Content-Type": "application/json",
-              Authorization: `Bearer ${token}`
-            },
-            body: JSON.stringify({ decrementBy: item.qty })
-          })
-        )
-      );
+      await fetchUserCart();
 
       toast.success("Order placed successfully!");
       sessionStorage.setItem("lastOrderId", orderId);
@@ -233,8 +225,8 @@ export default function Payment() {
   }
 
   function payNowLabel() {
-    if (paymentMethod === "card") return `Pay ₹${orderData.total} with Card`;
-    if (paymentMethod === "upi") return `Pay ₹${orderData.total} via UPI`;
+    if (paymentMethod === "card") return `Pay ₹${orderData.total.toFixed(2)} with Card`;
+    if (paymentMethod === "upi") return `Pay ₹${orderData.total.toFixed(2)} via UPI`;
     if (paymentMethod === "cod") return `Confirm Cash on Delivery`;
     return "Pay Now";
   }
@@ -0,0 +1,33 @@
+import { useEffect, useState } from "react";
+
+const API_BASE = import.meta.env.VITE_API_URL;
+
+/**
+ * Server-side price of the given lines ({ productId, qty }) from /api/cart/quote.
+ * Returns null until the first quote arrives. Checkout charges exactly this total.
+ */
+export function useCartQuote(items) {
+  const [quote, setQuote] = useState(null);
+  const lines = items.map(it => ({ productId: it.productId || it.id, qty: it.qty || it.quantity || 1 }));
+  const key = JSON.stringify(lines);
+
+  useEffect(() => {
+    if (lines.length === 0) {
+      setQuote(null);
+      return;
+    }
+
+    let cancelled = false;
+    fetch(`${API_BASE}/cart/quote`, {
+      method: "POST",
+      headers: { "Content-Type": "application/json" },
+      body: key
+    })
+      .then(res => res.ok ? res.json() : Promise.reject(res.status))
+      .then(data => { if (!cancelled) setQuote(data); })
+      .catch(err => console.error("Cart quote failed:", err));
+    return () => { cancelled = true; };
+  }, [key]);
+
+  return quote;
+}
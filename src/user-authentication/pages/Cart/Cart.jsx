@@ -3,6 +3,7 @@ import './Cart.css';
 import { useCart } from '../../context/CartContext';
 import { useAuth } from '../../context/AuthContext';
 import { useNavigate } from 'react-router-dom';
+import { useCartQuote } from '../../../order-management/useCartQuote';
 
 const API_BASE = import.meta.env.VITE_API_URL.replace(/\/api$/, '');
 
@@ -39,12 +40,13 @@ const Cart = () => {
       description: item.description || ""
     }));
 
-  const calculateSubtotal = () =>
-    selectedItems.reduce((total, item) => total + item.price * item.qty, 0);
-
-  const shipping = selectedItems.length > 0 ? 3.99 : 0;
-  const tax = selectedItems.length > 0 ? 2.0 : 0;
-  const total = calculateSubtotal() + shipping + tax;
+  // ✅ Totals (including product discounts) come from the server quote
+  const quote = useCartQuote(selectedItems);
+  const subtotal = quote?.subtotal ?? 0;
+  const discount = quote?.discount ?? 0;
+  const shipping = quote?.shipping ?? 0;
+  const tax = quote?.tax ?? 0;
+  const total = quote?.total ?? 0;
 
   const handleCheckout = () => {
     if (selectedItems.length === 0) {
@@ -56,7 +58,8 @@ const Cart = () => {
       state: {
         userId: user?.id || 0,
         cartItems: selectedItems,
-        subtotal: calculateSubtotal(),
+        subtotal,
+        discount,
         shipping,
         tax,
         total
@@ -124,8 +127,14 @@ const Cart = () => {
           <h3>Order summary</h3>
           <div className="u-summary-row">
             <span>Subtotal</span>
-            <span>₹{calculateSubtotal().toFixed(2)}</span>
+            <span>₹{subtotal.toFixed(2)}</span>
           </div>
+          {discount > 0 && (
+            <div className="u-summary-row">
+              <span>Discount</span>
+              <span>−₹{discount.toFixed(2)}</span>
+            </div>
+          )}
           <div className="u-summary-row">
             <span>Shipping</span>
             <span>₹{shipping.toFixed(2)}</span>